@@ -0,0 +1,50 @@
+package load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Лог-линейная гистограмма задержек в наносекундах: 16 подкорзин на каждую степень двойки (ошибка ~6%)
+public class LatencyHistogram {
+    private static final int SUB = 16;
+    private static final int SUB_BITS = 4;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long v = Math.max(1, nanos);
+        counts.incrementAndGet(index(v));
+        total.incrementAndGet();
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long count() { return total.get(); }
+    public long max() { return max.get(); }
+
+    public long percentile(double p) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    private static int index(long v) {
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        if (exp < SUB_BITS) return (int) v;
+        int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+        return (exp - SUB_BITS + 1) * SUB + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB) return index;
+        int exp = index / SUB + SUB_BITS - 1;
+        int sub = index % SUB;
+        return ((long) (SUB + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+}
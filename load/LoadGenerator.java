@@ -0,0 +1,362 @@
+package load;
+
+import model.*;
+import service.App;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Генератор нагрузки на App: детерминированный по seed каталог и поток операций,
+// выполнение из нескольких потоков с заданной частотой, перцентили задержек по операциям.
+// Сценарий можно записать в файл и переиграть.
+public class LoadGenerator {
+    private final LoadProfile profile;
+    private final long seed;
+
+    private final Map<LoadOp.Kind, LatencyHistogram> latencies = new EnumMap<>(LoadOp.Kind.class);
+    private final Map<LoadOp.Kind, AtomicLong> errors = new EnumMap<>(LoadOp.Kind.class);
+
+    private List<Ingredient> ingredients;
+    private List<Base> bases;
+    private List<Side> sides;
+    private List<Pizza> pizzas;
+
+    public LoadGenerator(LoadProfile profile, long seed) {
+        if (profile == null) throw new IllegalArgumentException("profile null");
+        this.profile = profile;
+        this.seed = seed;
+        for (LoadOp.Kind k : LoadOp.Kind.values()) {
+            latencies.put(k, new LatencyHistogram());
+            errors.put(k, new AtomicLong());
+        }
+    }
+
+    // --------- Каталог ---------
+
+    public void seedCatalog(App app) {
+        Random rnd = new Random(seed);
+
+        for (int i = 0; i < profile.ingredients(); i++) {
+            app.createIngredient(String.format("Ингредиент-%03d", i), 10 + rnd.nextInt(50));
+        }
+        ingredients = sorted(app.getAllIngredients());
+
+        app.createClassicBase();
+        double classic = app.getPricing().getClassicPrice();
+        for (int i = 0; i < 2; i++) {
+            app.createNotClassicBase(String.format("Основа-%d", i), classic * (0.8 + 0.4 * rnd.nextDouble()));
+        }
+        bases = sorted(app.getAllBases());
+
+        for (int i = 0; i < profile.pizzas(); i++) {
+            Pizza p = app.createPizza(String.format("Пицца-%03d", i), pick(rnd, bases),
+                    Size.values()[weighted(rnd, profile.sizeWeights())], Mode.BASIC, null);
+            int n = 1 + rnd.nextInt(4);
+            for (int j = 0; j < n; j++) p.addIngredientsBasic(pick(rnd, ingredients), 1 + rnd.nextInt(2));
+        }
+        pizzas = sorted(app.getAllPizzas());
+
+        for (int i = 0; i < profile.sides(); i++) {
+            Side s = app.createSide(String.format("Бортик-%d", i));
+            app.addIngredientToSide(s, pick(rnd, ingredients), 1 + rnd.nextInt(2));
+            for (Pizza p : pizzas) if (rnd.nextDouble() < profile.sideBanShare()) s.addBanPizza(p);
+        }
+        sides = sorted(app.getAllSides());
+    }
+
+    // --------- Генерация сценария ---------
+
+    public List<LoadOp> generate(int threads, int ordersPerThread) {
+        if (threads < 1 || ordersPerThread < 1) throw new IllegalArgumentException("threads/orders должны быть >= 1");
+        requireCatalog();
+        List<LoadOp> ops = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random rnd = new Random(seed * 31 + t + 1);
+            for (int o = 0; o < ordersPerThread; o++) generateOrder(t, o, rnd, ops);
+        }
+        return ops;
+    }
+
+    private void generateOrder(int t, int o, Random rnd, List<LoadOp> ops) {
+        ops.add(new LoadOp(t, LoadOp.Kind.CREATE_ORDER, new int[]{o}));
+
+        int nPizzas = between(rnd, profile.minPizzas(), profile.maxPizzas());
+        for (int i = 0; i < nPizzas; i++) {
+            int catalog = rnd.nextInt(pizzas.size());
+            switch (Mode.values()[weighted(rnd, profile.modeWeights())]) {
+                case BASIC -> ops.add(new LoadOp(t, LoadOp.Kind.ADD_PIZZA, new int[]{catalog}));
+                case HALFS -> {
+                    Pizza a = pizzas.get(catalog);
+                    List<Integer> same = new ArrayList<>();
+                    for (int j = 0; j < pizzas.size(); j++) if (pizzas.get(j).getSize() == a.getSize()) same.add(j);
+                    ops.add(new LoadOp(t, LoadOp.Kind.ADD_HALFS, new int[]{catalog, same.get(rnd.nextInt(same.size()))}));
+                }
+                case PARTS -> {
+                    Size size = Size.values()[weighted(rnd, profile.sizeWeights())];
+                    int a = 1 + rnd.nextInt(size.getAmount());
+                    int b = between(rnd, a, size.getAmount());
+                    ops.add(new LoadOp(t, LoadOp.Kind.ADD_PARTS, new int[]{
+                            rnd.nextInt(bases.size()), size.ordinal(), rnd.nextInt(ingredients.size()), 1 + rnd.nextInt(2), a, b}));
+                }
+            }
+            if (rnd.nextDouble() < profile.sideShare()) {
+                int side = rnd.nextInt(sides.size());
+                // Запрещённые бортики для исходной пиццы из каталога не добавляем
+                if (!sides.get(side).getBanPizzaIds().contains(pizzas.get(catalog).getId())) {
+                    ops.add(new LoadOp(t, LoadOp.Kind.ADD_SIDE, new int[]{i, side}));
+                }
+            }
+        }
+
+        int nGuests = between(rnd, profile.minGuests(), profile.maxGuests());
+        for (int g = 0; g < nGuests; g++) ops.add(new LoadOp(t, LoadOp.Kind.ADD_GUEST, new int[]{g}));
+        if (nGuests > 0) {
+            for (int i = 0; i < nPizzas; i++) {
+                int eaters = 1 + rnd.nextInt(nGuests);
+                for (int e = 0; e < eaters; e++) {
+                    ops.add(new LoadOp(t, LoadOp.Kind.ASSIGN_GUEST, new int[]{i, rnd.nextInt(nGuests)}));
+                }
+            }
+        }
+
+        if (rnd.nextDouble() < profile.queryShare()) {
+            ops.add(new LoadOp(t, LoadOp.Kind.QUERY, new int[]{rnd.nextInt(3), rnd.nextInt(3)}));
+        }
+    }
+
+    // --------- Запись и воспроизведение ---------
+
+    public void save(Path file, List<LoadOp> ops) {
+        List<String> lines = new ArrayList<>();
+        lines.add("# seed=" + seed + " " + profile.toHeader());
+        for (LoadOp op : ops) lines.add(op.toLine());
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать сценарий " + file, e);
+        }
+    }
+
+    public static LoadGenerator fromRecording(Path file) {
+        String header = readLines(file).get(0);
+        if (!header.startsWith("# seed=")) throw new IllegalArgumentException("Нет заголовка сценария в " + file);
+        String rest = header.substring("# seed=".length());
+        int sp = rest.indexOf(' ');
+        return new LoadGenerator(LoadProfile.fromHeader(rest.substring(sp + 1)), Long.parseLong(rest.substring(0, sp)));
+    }
+
+    public static List<LoadOp> readOps(Path file) {
+        List<LoadOp> ops = new ArrayList<>();
+        for (String line : readLines(file)) {
+            if (!line.isBlank() && !line.startsWith("#")) ops.add(LoadOp.parse(line));
+        }
+        return ops;
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать сценарий " + file, e);
+        }
+    }
+
+    // --------- Выполнение ---------
+
+    // Задержка считается от запланированного момента старта, чтобы отставание от графика не пряталось
+    public void run(App app, List<LoadOp> ops, double targetOpsPerSecond) throws InterruptedException {
+        requireCatalog();
+        Map<Integer, List<LoadOp>> byThread = new TreeMap<>();
+        for (LoadOp op : ops) byThread.computeIfAbsent(op.thread(), k -> new ArrayList<>()).add(op);
+
+        int threads = byThread.size();
+        long intervalNanos = targetOpsPerSecond <= 0 ? 0 : (long) (1e9 * threads / targetOpsPerSecond);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (List<LoadOp> mine : byThread.values()) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                Worker w = new Worker(app);
+                long next = System.nanoTime();
+                for (LoadOp op : mine) {
+                    long now = System.nanoTime();
+                    if (intervalNanos > 0 && now < next) {
+                        LockSupport.parkNanos(next - now);
+                    }
+                    long begin = intervalNanos > 0 ? next : System.nanoTime();
+                    try {
+                        w.execute(op);
+                    } catch (RuntimeException e) {
+                        errors.get(op.kind()).incrementAndGet();
+                    }
+                    latencies.get(op.kind()).record(System.nanoTime() - begin);
+                    next += intervalNanos;
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> f : futures) f.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Поток нагрузки упал", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private final class Worker {
+        private final App app;
+        private Order order;
+        private final List<Pizza> orderPizzas = new ArrayList<>();
+        private final List<Person> guests = new ArrayList<>();
+
+        Worker(App app) { this.app = app; }
+
+        void execute(LoadOp op) {
+            int[] a = op.args();
+            switch (op.kind()) {
+                case CREATE_ORDER -> {
+                    order = app.createOrder("load-" + op.thread() + "-" + a[0]);
+                    orderPizzas.clear();
+                    guests.clear();
+                }
+                case ADD_PIZZA -> addPizza(app.copyPizzaForOrder(pizzas.get(a[0])), false);
+                case ADD_HALFS -> {
+                    Pizza x = pizzas.get(a[0]), y = pizzas.get(a[1]);
+                    Pizza p = app.createPizzaForOrderOnly(x.getName() + "/" + y.getName(), x.getBase(), x.getSize(), Mode.HALFS, null);
+                    p.applyHalfsFrom(x, y);
+                    addPizza(p, true);
+                }
+                case ADD_PARTS -> {
+                    Pizza p = app.createPizzaForOrderOnly("Кусочки", bases.get(a[0]), Size.values()[a[1]], Mode.PARTS, null);
+                    p.addIngredientParts(ingredients.get(a[2]), a[3], a[4], a[5]);
+                    addPizza(p, true);
+                }
+                case ADD_SIDE -> {
+                    Pizza p = orderPizza(a[0]);
+                    if (p != null) p.addSideBasic(sides.get(a[1]));
+                }
+                case ADD_GUEST -> {
+                    Person g = new Person("Гость-" + a[0]);
+                    order.createGuest(g);
+                    guests.add(g);
+                }
+                case ASSIGN_GUEST -> {
+                    Pizza p = orderPizza(a[0]);
+                    if (p != null) order.addGuestToPizza(p, guests.get(a[1]));
+                }
+                case QUERY -> {
+                    switch (a[0]) {
+                        case 0 -> app.pizzasBySize(Size.values()[a[1]]);
+                        case 1 -> app.ordersWithMinGuests(a[1] + 1);
+                        default -> app.ordersAtDay(LocalDate.now(), ZoneId.systemDefault());
+                    }
+                }
+            }
+        }
+
+        // Неудавшееся добавление (например, нет на складе) не сдвигает индексы пицц в заказе
+        private void addPizza(Pizza p, boolean custom) {
+            try {
+                if (custom) app.addCustomPizzaToOrder(order, p);
+                else app.addPizzaToOrder(order, p);
+                orderPizzas.add(p);
+            } catch (RuntimeException e) {
+                orderPizzas.add(null);
+                throw e;
+            }
+        }
+
+        private Pizza orderPizza(int index) {
+            return index < orderPizzas.size() ? orderPizzas.get(index) : null;
+        }
+    }
+
+    // --------- Отчёт ---------
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-13s %9s %7s %10s %10s %10s %10s %10s%n",
+                "операция", "кол-во", "ошибки", "p50 мкс", "p90 мкс", "p99 мкс", "p99.9 мкс", "max мкс"));
+        for (LoadOp.Kind k : LoadOp.Kind.values()) {
+            LatencyHistogram h = latencies.get(k);
+            if (h.count() == 0) continue;
+            sb.append(String.format("%-13s %9d %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    k, h.count(), errors.get(k).get(),
+                    h.percentile(50) / 1e3, h.percentile(90) / 1e3, h.percentile(99) / 1e3,
+                    h.percentile(99.9) / 1e3, h.max() / 1e3));
+        }
+        return sb.toString();
+    }
+
+    public LatencyHistogram latency(LoadOp.Kind kind) { return latencies.get(kind); }
+    public long errors(LoadOp.Kind kind) { return errors.get(kind).get(); }
+
+    // --------- Utils ---------
+
+    private void requireCatalog() {
+        if (pizzas == null) throw new IllegalStateException("Сначала вызовите seedCatalog()");
+    }
+
+    private static <T extends Entity> List<T> sorted(List<T> list) {
+        return list.stream().sorted(Comparator.comparing(Entity::getName)).toList();
+    }
+
+    private static <T> T pick(Random rnd, List<T> list) { return list.get(rnd.nextInt(list.size())); }
+
+    private static int between(Random rnd, int lo, int hi) { return lo + rnd.nextInt(hi - lo + 1); }
+
+    private static int weighted(Random rnd, double[] weights) {
+        double sum = 0;
+        for (double w : weights) sum += w;
+        double x = rnd.nextDouble() * sum;
+        for (int i = 0; i < weights.length; i++) {
+            x -= weights[i];
+            if (x < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    // --threads N --orders N --rate OPS --seed S [--record file | --replay file]
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) opts.put(args[i], args[i + 1]);
+
+        LoadGenerator gen;
+        List<LoadOp> ops;
+        App app = new App();
+        if (opts.containsKey("--replay")) {
+            Path file = Path.of(opts.get("--replay"));
+            gen = fromRecording(file);
+            gen.seedCatalog(app);
+            ops = readOps(file);
+        } else {
+            gen = new LoadGenerator(LoadProfile.defaults(), Long.parseLong(opts.getOrDefault("--seed", "42")));
+            gen.seedCatalog(app);
+            ops = gen.generate(Integer.parseInt(opts.getOrDefault("--threads", "4")),
+                    Integer.parseInt(opts.getOrDefault("--orders", "1000")));
+            if (opts.containsKey("--record")) gen.save(Path.of(opts.get("--record")), ops);
+        }
+
+        double rate = Double.parseDouble(opts.getOrDefault("--rate", "0"));
+        long t0 = System.nanoTime();
+        gen.run(app, ops, rate);
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        System.out.printf("Операций: %d за %.2f с (%.0f оп/с)%n", ops.size(), seconds, ops.size() / seconds);
+        System.out.print(gen.report());
+    }
+}
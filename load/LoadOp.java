@@ -0,0 +1,21 @@
+package load;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// Одна операция сценария. Аргументы — индексы в каталоге/заказе потока, поэтому сценарий переигрывается один в один
+public record LoadOp(int thread, Kind kind, int[] args) {
+    public enum Kind { CREATE_ORDER, ADD_PIZZA, ADD_HALFS, ADD_PARTS, ADD_SIDE, ADD_GUEST, ASSIGN_GUEST, QUERY }
+
+    public String toLine() {
+        return thread + " " + kind + (args.length == 0 ? ""
+                : " " + Arrays.stream(args).mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+    }
+
+    public static LoadOp parse(String line) {
+        String[] p = line.trim().split("\\s+");
+        int[] args = new int[p.length - 2];
+        for (int i = 0; i < args.length; i++) args[i] = Integer.parseInt(p[i + 2]);
+        return new LoadOp(Integer.parseInt(p[0]), Kind.valueOf(p[1]), args);
+    }
+}
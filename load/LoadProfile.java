@@ -0,0 +1,55 @@
+package load;
+
+import java.util.*;
+
+// Параметры нагрузки: размер каталога и распределения для генерации заказов
+public record LoadProfile(int ingredients, int pizzas, int sides,
+                          double[] sizeWeights, double[] modeWeights,
+                          int minPizzas, int maxPizzas, int minGuests, int maxGuests,
+                          double sideShare, double sideBanShare, double queryShare) {
+
+    public LoadProfile {
+        if (ingredients < 1 || pizzas < 2 || sides < 1) throw new IllegalArgumentException("Слишком маленький каталог");
+        if (sizeWeights.length != 3 || modeWeights.length != 3) throw new IllegalArgumentException("Нужно по 3 веса");
+        if (minPizzas < 1 || maxPizzas < minPizzas) throw new IllegalArgumentException("Неверный диапазон пицц");
+        if (minGuests < 0 || maxGuests < minGuests) throw new IllegalArgumentException("Неверный диапазон гостей");
+    }
+
+    public static LoadProfile defaults() {
+        return new LoadProfile(12, 20, 4,
+                new double[]{0.3, 0.5, 0.2}, new double[]{0.7, 0.15, 0.15},
+                1, 4, 1, 6, 0.2, 0.1, 0.05);
+    }
+
+    public String toHeader() {
+        return String.format(Locale.ROOT,
+                "ingredients=%d pizzas=%d sides=%d sizes=%s modes=%s pizzasPerOrder=%d-%d guests=%d-%d side=%s ban=%s query=%s",
+                ingredients, pizzas, sides, join(sizeWeights), join(modeWeights),
+                minPizzas, maxPizzas, minGuests, maxGuests, sideShare, sideBanShare, queryShare);
+    }
+
+    public static LoadProfile fromHeader(String header) {
+        Map<String, String> kv = new HashMap<>();
+        for (String part : header.trim().split("\\s+")) {
+            int eq = part.indexOf('=');
+            if (eq > 0) kv.put(part.substring(0, eq), part.substring(eq + 1));
+        }
+        String[] pz = kv.get("pizzasPerOrder").split("-");
+        String[] gs = kv.get("guests").split("-");
+        return new LoadProfile(
+                Integer.parseInt(kv.get("ingredients")), Integer.parseInt(kv.get("pizzas")), Integer.parseInt(kv.get("sides")),
+                split(kv.get("sizes")), split(kv.get("modes")),
+                Integer.parseInt(pz[0]), Integer.parseInt(pz[1]), Integer.parseInt(gs[0]), Integer.parseInt(gs[1]),
+                Double.parseDouble(kv.get("side")), Double.parseDouble(kv.get("ban")), Double.parseDouble(kv.get("query")));
+    }
+
+    private static String join(double[] w) {
+        StringJoiner j = new StringJoiner(",");
+        for (double x : w) j.add(Double.toString(x));
+        return j.toString();
+    }
+
+    private static double[] split(String s) {
+        return Arrays.stream(s.split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+}
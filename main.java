@@ -1,10 +1,27 @@
 import service.App;
 import ui.ConsoleUI;
 
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         App app = new App();
         app.seedDefaults();
+
+        if (args.length > 0 && args[0].equals("--batch")) {
+            try (Reader script = args.length > 1
+                    ? Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)
+                    : new InputStreamReader(System.in, StandardCharsets.UTF_8)) {
+                int errors = new ConsoleUI(app).runBatch(script);
+                if (errors > 0) System.exit(1);
+            }
+            return;
+        }
+
         new ConsoleUI(app).run();
     }
 }
\ No newline at end of file
@@ -1,25 +1,35 @@
 package model;
 
+import java.util.UUID;
+
 public abstract class Base extends Entity {
+    private static final long serialVersionUID = 1L;
+
     private double price;
-    private static double classicBasePrice = 100.0;
+    private final BasePricing pricing;
 
-    public static double getClassicBasePrice() { return classicBasePrice; }
+    public static double getClassicBasePrice() { return BasePricing.DEFAULT.getClassicPrice(); }
 
-    public static void setClassicBasePrice(double price) {
-        if (price <= 0) throw new IllegalArgumentException("Цена основы должна быть > 0");
-        classicBasePrice = price;
-    }
+    public static void setClassicBasePrice(double price) { BasePricing.DEFAULT.setClassicPrice(price); }
 
-    protected Base(String name, double price) {
-        super(name);
+    protected Base(String name, double price) { this(name, price, BasePricing.DEFAULT); }
+
+    protected Base(String name, double price, BasePricing pricing) { this(UUID.randomUUID(), name, price, pricing); }
+
+    protected Base(UUID id, String name, double price, BasePricing pricing) {
+        super(id, name);
+        if (pricing == null) throw new IllegalArgumentException("pricing null");
+        this.pricing = pricing;
         setPrice(price);
     }
 
+    public final BasePricing getPricing() { return pricing; }
+
     public final double getPrice() { return price; }
 
     public void setPrice(double price) {
         if (price <= 0) throw new IllegalArgumentException("Цена основы должна быть > 0");
         this.price = price;
+        touchReference();
     }
-}
\ No newline at end of file
+}
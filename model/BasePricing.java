@@ -0,0 +1,23 @@
+package model;
+
+import java.io.Serializable;
+
+// Цена классической основы в рамках одной пиццерии; неклассические основы не дороже на 20%
+public class BasePricing implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final BasePricing DEFAULT = new BasePricing(100.0);
+
+    private volatile double classicPrice;
+
+    public BasePricing(double classicPrice) { setClassicPrice(classicPrice); }
+
+    public double getClassicPrice() { return classicPrice; }
+
+    public void setClassicPrice(double price) {
+        if (price <= 0) throw new IllegalArgumentException("Цена основы должна быть > 0");
+        this.classicPrice = price;
+    }
+
+    public double getMaxNotClassicPrice() { return classicPrice * 1.2; }
+}
@@ -0,0 +1,359 @@
+package model;
+
+import util.UuidDoubleMap;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Supplier;
+
+// Компактный двоичный формат сущностей. Целые — varint (знаковые через zigzag), строки — длина и
+// символы varint, UUID — 16 байт, цены — 8 байт. Пицца и заказ ссылаются на ингредиенты, основы,
+// бортики и прайс-лист по id/версии; при чтении они ищутся через Catalog.
+// Запись идёт прямо в переданный буфер; при нехватке места бросается BufferOverflowException.
+// Обрезанные или испорченные данные при чтении дают IllegalArgumentException.
+public final class BinaryCodec {
+    public interface Catalog {
+        Ingredient ingredient(UUID id);
+        Base base(UUID id);
+        Side side(UUID id);
+        PriceList priceList(long version);
+    }
+
+    private static final int FORMAT = 1;
+    private static final int CLASSIC = 0, NOT_CLASSIC = 1;
+
+    private BinaryCodec() { }
+
+    // --------- Каталог ---------
+
+    public static void writeIngredient(ByteBuffer buf, Ingredient i) {
+        writeEntity(buf, i);
+        buf.putDouble(i.getPrice());
+    }
+
+    public static Ingredient readIngredient(ByteBuffer buf) {
+        return decoding(() -> {
+            UUID id = readUuid(buf);
+            return new Ingredient(id, readString(buf), buf.getDouble());
+        });
+    }
+
+    public static void writeBase(ByteBuffer buf, Base b) {
+        buf.put((byte) (b instanceof ClassicBase ? CLASSIC : NOT_CLASSIC));
+        writeEntity(buf, b);
+        buf.putDouble(b.getPrice());
+    }
+
+    // Цена классической основы берётся из pricing, у неклассической проверяется лимит 20%
+    public static Base readBase(ByteBuffer buf, BasePricing pricing) {
+        return decoding(() -> {
+            int kind = buf.get();
+            if (kind != CLASSIC && kind != NOT_CLASSIC) throw new IllegalArgumentException("Неизвестный тип основы: " + kind);
+            UUID id = readUuid(buf);
+            String name = readString(buf);
+            double price = buf.getDouble();
+            return kind == CLASSIC ? new ClassicBase(id, name, pricing) : new NotClassicBase(id, name, price, pricing);
+        });
+    }
+
+    public static void writeSide(ByteBuffer buf, Side s) {
+        writeEntity(buf, s);
+        writePortions(buf, s.getIngredients());
+        List<UUID> bans = s.getBanPizzaIds();
+        writeVarInt(buf, bans.size());
+        for (UUID id : bans) writeUuid(buf, id);
+    }
+
+    public static Side readSide(ByteBuffer buf, Catalog catalog) {
+        return decoding(() -> {
+            UUID id = readUuid(buf);
+            Side s = new Side(id, readString(buf));
+            int n = readVarInt(buf);
+            for (int k = 0; k < n; k++) s.addIngredient(ingredient(catalog, readUuid(buf)), buf.get());
+            int bans = readVarInt(buf);
+            for (int k = 0; k < bans; k++) s.banPizzaId(readUuid(buf));
+            return s;
+        });
+    }
+
+    public static void writePerson(ByteBuffer buf, Person p) { writeEntity(buf, p); }
+
+    public static Person readPerson(ByteBuffer buf) {
+        return decoding(() -> {
+            UUID id = readUuid(buf);
+            return new Person(id, readString(buf));
+        });
+    }
+
+    // --------- Пицца ---------
+
+    public static void writePizza(ByteBuffer buf, Pizza p) {
+        writeEntity(buf, p);
+        writeUuid(buf, p.getBase().getId());
+        buf.put((byte) p.getSize().ordinal());
+        buf.put((byte) (p.getMode() == null ? 0 : p.getMode().ordinal() + 1));
+        writeSideRef(buf, p.getSide());
+        for (Slice sl : p.getSlices()) {
+            writeSideRef(buf, sl.getSide());
+            writePortions(buf, sl.getIngredients());
+        }
+    }
+
+    public static Pizza readPizza(ByteBuffer buf, Catalog catalog) {
+        return decoding(() -> {
+            UUID id = readUuid(buf);
+            String name = readString(buf);
+            Base base = base(catalog, readUuid(buf));
+            Size size = constant(Size.values(), buf.get(), "размер");
+            int mode = buf.get();
+            Side side = readSideRef(buf, catalog);
+
+            Pizza p = new Pizza(id, name, base, size, mode == 0 ? null : constant(Mode.values(), mode - 1, "режим"), side);
+            for (int i = 1; i <= size.getAmount(); i++) {
+                // Бортик куска ставится всегда, в том числе null: кусок мог остаться без бортика пиццы
+                p.setSideToSlice(i, readSideRef(buf, catalog));
+                int n = readVarInt(buf);
+                for (int k = 0; k < n; k++) p.addIngredientToSlice(i, ingredient(catalog, readUuid(buf)), buf.get());
+            }
+            return p;
+        });
+    }
+
+    // --------- Заказ ---------
+
+    public static void writeOrder(ByteBuffer buf, Order o) {
+        writeVarInt(buf, FORMAT);
+        writeEntity(buf, o);
+        writeVarLong(buf, o.getTime().getEpochSecond());
+        writeVarInt(buf, o.getTime().getNano());
+        writeNullableString(buf, o.getComment());
+
+        List<Person> guests = o.getGuests();
+        writeVarInt(buf, guests.size());
+        for (Person g : guests) writePerson(buf, g);
+
+        writePizzas(buf, o, o.getPizzasList());
+        writePizzas(buf, o, o.getCustomPizzas());
+
+        PriceList prices = o.getPriceList();
+        buf.put((byte) (prices == null ? 0 : 1));
+        if (prices != null) {
+            writeVarLong(buf, prices.getVersion());
+            buf.putDouble(o.getTotalPrice());
+            writePrices(buf, o.placedPizzaPrices());
+            writePrices(buf, o.placedBills());
+        }
+    }
+
+    public static Order readOrder(ByteBuffer buf, Catalog catalog) { return decoding(() -> readOrderUnchecked(buf, catalog)); }
+
+    private static Order readOrderUnchecked(ByteBuffer buf, Catalog catalog) {
+        int format = readVarInt(buf);
+        if (format != FORMAT) throw new IllegalArgumentException("Неподдерживаемая версия формата: " + format);
+        UUID id = readUuid(buf);
+        String name = readString(buf);
+        Instant time = Instant.ofEpochSecond(readVarLong(buf), readVarInt(buf));
+        Order o = new Order(id, name, time, readNullableString(buf));
+
+        int guests = readVarInt(buf);
+        Map<UUID, Person> byId = new HashMap<>();
+        for (int k = 0; k < guests; k++) {
+            Person g = readPerson(buf);
+            byId.put(g.getId(), g);
+            o.restoreGuest(g);
+        }
+
+        readPizzas(buf, o, false, byId, catalog);
+        readPizzas(buf, o, true, byId, catalog);
+
+        if (buf.get() != 0) {
+            PriceList prices = catalog.priceList(readVarLong(buf));
+            if (prices == null) throw new IllegalArgumentException("Нет прайс-листа для оформленного заказа");
+            double total = buf.getDouble();
+            UuidDoubleMap pizzaPrices = readPrices(buf);
+            o.restorePlacement(prices, total, pizzaPrices, readPrices(buf));
+        }
+        return o;
+    }
+
+    // Заказ пишется в рабочий буфер потока, результат — точная копия записанного, готовая к чтению.
+    // Рабочий буфер растёт вдвое при нехватке места и остаётся большим, поэтому повторная запись
+    // бывает только до первого заказа такого размера
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(4096));
+
+    public static ByteBuffer encode(Order o) {
+        ByteBuffer buf = SCRATCH.get();
+        while (true) {
+            buf.clear();
+            try {
+                writeOrder(buf, o);
+                break;
+            } catch (BufferOverflowException e) {
+                buf = ByteBuffer.allocate(buf.capacity() * 2);
+                SCRATCH.set(buf);
+            }
+        }
+        buf.flip();
+        ByteBuffer result = ByteBuffer.allocate(buf.remaining());
+        return result.put(buf).flip();
+    }
+
+    public static Order decode(ByteBuffer buf, Catalog catalog) { return readOrder(buf, catalog); }
+
+    private static void writePizzas(ByteBuffer buf, Order o, List<Pizza> pizzas) {
+        writeVarInt(buf, pizzas.size());
+        for (Pizza p : pizzas) {
+            writePizza(buf, p);
+            List<Person> eaters = o.eatersOf(p);
+            writeVarInt(buf, eaters.size());
+            for (Person e : eaters) writePerson(buf, e);
+        }
+    }
+
+    // Едоки — те же объекты, что и гости заказа, если id совпадает
+    private static void readPizzas(ByteBuffer buf, Order o, boolean custom, Map<UUID, Person> guests, Catalog catalog) {
+        int n = readVarInt(buf);
+        for (int k = 0; k < n; k++) {
+            Pizza p = readPizza(buf, catalog);
+            int eaters = readVarInt(buf);
+            List<Person> list = new ArrayList<>(eaters);
+            for (int e = 0; e < eaters; e++) {
+                Person person = readPerson(buf);
+                list.add(guests.getOrDefault(person.getId(), person));
+            }
+            o.restorePizza(p, custom, list);
+        }
+    }
+
+    private static void writePrices(ByteBuffer buf, UuidDoubleMap prices) {
+        writeVarInt(buf, prices.size());
+        prices.forEach((id, price) -> {
+            writeUuid(buf, id);
+            buf.putDouble(price);
+        });
+    }
+
+    private static UuidDoubleMap readPrices(ByteBuffer buf) {
+        int n = readVarInt(buf);
+        UuidDoubleMap prices = new UuidDoubleMap(n);
+        for (int k = 0; k < n; k++) prices.put(readUuid(buf), buf.getDouble());
+        return prices;
+    }
+
+    // Нехватка байтов и значения вне диапазона — это испорченные данные, а не ошибка программы
+    private static <T> T decoding(Supplier<T> read) {
+        try {
+            return read.get();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ArithmeticException e) {
+            throw new IllegalArgumentException("Повреждённые данные: " + e, e);
+        }
+    }
+
+    private static <E extends Enum<E>> E constant(E[] values, int ordinal, String what) {
+        if (ordinal < 0 || ordinal >= values.length) throw new IllegalArgumentException("Неизвестный " + what + ": " + ordinal);
+        return values[ordinal];
+    }
+
+    // --------- Ссылки на каталог ---------
+
+    private static void writePortions(ByteBuffer buf, List<IngredientPortion> portions) {
+        writeVarInt(buf, portions.size());
+        for (IngredientPortion ip : portions) {
+            writeUuid(buf, ip.ingredient().getId());
+            buf.put((byte) ip.multiplier());
+        }
+    }
+
+    private static void writeSideRef(ByteBuffer buf, Side side) {
+        buf.put((byte) (side == null ? 0 : 1));
+        if (side != null) writeUuid(buf, side.getId());
+    }
+
+    private static Side readSideRef(ByteBuffer buf, Catalog catalog) {
+        if (buf.get() == 0) return null;
+        UUID id = readUuid(buf);
+        Side s = catalog.side(id);
+        if (s == null) throw new IllegalArgumentException("Нет бортика с id=" + id);
+        return s;
+    }
+
+    private static Ingredient ingredient(Catalog catalog, UUID id) {
+        Ingredient i = catalog.ingredient(id);
+        if (i == null) throw new IllegalArgumentException("Нет ингредиента с id=" + id);
+        return i;
+    }
+
+    private static Base base(Catalog catalog, UUID id) {
+        Base b = catalog.base(id);
+        if (b == null) throw new IllegalArgumentException("Нет основы с id=" + id);
+        return b;
+    }
+
+    // --------- Примитивы ---------
+
+    private static void writeEntity(ByteBuffer buf, Entity e) {
+        writeUuid(buf, e.getId());
+        writeString(buf, e.getName());
+    }
+
+    public static void writeUuid(ByteBuffer buf, UUID id) {
+        buf.putLong(id.getMostSignificantBits());
+        buf.putLong(id.getLeastSignificantBits());
+    }
+
+    public static UUID readUuid(ByteBuffer buf) { return new UUID(buf.getLong(), buf.getLong()); }
+
+    public static void writeVarLong(ByteBuffer buf, long v) {
+        long u = (v << 1) ^ (v >> 63);
+        while ((u & ~0x7FL) != 0) {
+            buf.put((byte) ((u & 0x7F) | 0x80));
+            u >>>= 7;
+        }
+        buf.put((byte) u);
+    }
+
+    public static long readVarLong(ByteBuffer buf) {
+        long u = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 63) throw new IllegalArgumentException("Слишком длинный varint");
+            byte b = buf.get();
+            u |= (long) (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+        return (u >>> 1) ^ -(u & 1);
+    }
+
+    public static void writeVarInt(ByteBuffer buf, int v) { writeVarLong(buf, v); }
+
+    public static int readVarInt(ByteBuffer buf) { return Math.toIntExact(readVarLong(buf)); }
+
+    // Символы пишутся как varint: латиница — 1 байт, кириллица — 2, без промежуточного byte[].
+    // null записывается длиной -1
+    public static void writeString(ByteBuffer buf, String s) {
+        if (s == null) {
+            writeVarInt(buf, -1);
+            return;
+        }
+        writeVarInt(buf, s.length());
+        for (int i = 0; i < s.length(); i++) writeVarInt(buf, s.charAt(i) - 0x40);
+    }
+
+    public static String readString(ByteBuffer buf) {
+        int n = readVarInt(buf);
+        if (n == -1) return null;
+        if (n < 0 || n > buf.remaining()) throw new IllegalArgumentException("Неверная длина строки: " + n);
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) sb.append((char) (readVarInt(buf) + 0x40));
+        return sb.toString();
+    }
+
+    private static void writeNullableString(ByteBuffer buf, String s) {
+        buf.put((byte) (s == null ? 0 : 1));
+        if (s != null) writeString(buf, s);
+    }
+
+    private static String readNullableString(ByteBuffer buf) { return buf.get() == 0 ? null : readString(buf); }
+}
@@ -1,13 +1,23 @@
 package model;
 
+import java.util.UUID;
+
 public class ClassicBase extends Base {
-    public ClassicBase() {
-        super("Классическая", Base.getClassicBasePrice());
+    private static final long serialVersionUID = 1L;
+
+    public ClassicBase() { this(BasePricing.DEFAULT); }
+
+    public ClassicBase(BasePricing pricing) {
+        super("Классическая", pricing.getClassicPrice(), pricing);
+    }
+
+    ClassicBase(UUID id, String name, BasePricing pricing) {
+        super(id, name, pricing.getClassicPrice(), pricing);
     }
 
     @Override
     public void setPrice(double price) {
-        Base.setClassicBasePrice(price);
-        super.setPrice(Base.getClassicBasePrice());
+        getPricing().setClassicPrice(price);
+        super.setPrice(getPricing().getClassicPrice());
     }
-}
\ No newline at end of file
+}
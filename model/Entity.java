@@ -1,16 +1,88 @@
 package model;
 
+import java.io.Serializable;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+public abstract class Entity implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Общие часы версий: каждое изменение получает новое значение, поэтому версии не повторяются
+    private static final AtomicLong CLOCK = new AtomicLong();
+    // Последнее изменение справочных данных (цены, названия), которые видны в описаниях пицц и заказов
+    private static volatile long referenceVersion;
 
-public abstract class Entity {
     private String name;
-    private final UUID id = UUID.randomUUID();
+    private transient volatile String nameKey;
+    private final UUID id;
+    private volatile long version = CLOCK.incrementAndGet();
+    private transient volatile List<Runnable> watchers;
+
+    protected Entity(String name) { this(UUID.randomUUID(), name); }
 
-    protected Entity(String name) {
+    // Восстановление сущности с известным id (например, при декодировании)
+    protected Entity(UUID id, String name) {
+        if (id == null) throw new IllegalArgumentException("id null");
+        this.id = id;
         this.name = name;
     }
 
     public final UUID getId() { return id; }
     public final String getName() { return name; }
-    public final void setName(String name) { this.name = name; }
-}
\ No newline at end of file
+
+    public final void setName(String name) {
+        this.name = name;
+        nameKey = null;
+        touchReference();
+    }
+
+    // Имя для сравнения без учёта регистра и крайних пробелов; считается один раз до переименования
+    public final String nameKey() {
+        String k = nameKey;
+        if (k == null) nameKey = k = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+        return k;
+    }
+
+    public final long getVersion() { return version; }
+
+    protected final void touch() {
+        version = CLOCK.incrementAndGet();
+        List<Runnable> w = watchers;
+        if (w != null) for (Runnable r : w) r.run();
+    }
+
+    // Compare-and-set: изменение применяется, только если версия не сменилась с момента чтения.
+    // Параллельные updateIfVersion одной сущности выполняются по очереди; возвращает новую версию.
+    // Обычные сеттеры блокировку не берут: конфликт с ними ловится, только если они успели до проверки.
+    // Изменение, которое идёт одновременно с mutation, не обнаруживается, поэтому сущность,
+    // которую правят конкурентно, нужно менять только через updateIfVersion
+    public final synchronized long updateIfVersion(long expectedVersion, Runnable mutation) {
+        if (mutation == null) throw new IllegalArgumentException("mutation null");
+        long current = version;
+        if (current != expectedVersion) throw new OptimisticLockException(id, expectedVersion, current);
+        mutation.run();
+        if (version == current) touch();
+        return version;
+    }
+
+    // Наблюдатели вызываются после каждого изменения сущности; не сериализуются
+    public final synchronized void watch(Runnable onChange) {
+        if (onChange == null) throw new IllegalArgumentException("onChange null");
+        if (watchers == null) watchers = new CopyOnWriteArrayList<>();
+        watchers.add(onChange);
+    }
+
+    public final synchronized void unwatch(Runnable onChange) {
+        if (watchers != null) watchers.remove(onChange);
+    }
+
+    protected final void touchReference() {
+        touch();
+        referenceVersion = version;
+    }
+
+    static long referenceVersion() { return referenceVersion; }
+}
@@ -1,6 +1,10 @@
 package model;
 
+import java.util.UUID;
+
 public class Ingredient extends Entity {
+    private static final long serialVersionUID = 1L;
+
     private double price;
 
     public Ingredient(String name, double price) {
@@ -8,10 +12,16 @@ public class Ingredient extends Entity {
         setPrice(price);
     }
 
+    Ingredient(UUID id, String name, double price) {
+        super(id, name);
+        setPrice(price);
+    }
+
     public double getPrice() { return price; }
 
     public void setPrice(double price) {
         if (price < 0) throw new IllegalArgumentException("Цена не может быть отрицательной");
         this.price = price;
+        touchReference();
     }
 }
\ No newline at end of file
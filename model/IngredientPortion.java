@@ -1,10 +1,16 @@
 package model;
 
-public record IngredientPortion(Ingredient ingredient, int multiplier) {
+import java.io.Serializable;
+
+public record IngredientPortion(Ingredient ingredient, int multiplier) implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public IngredientPortion {
         if (ingredient == null) throw new IllegalArgumentException("ingredient null");
         if (multiplier != 1 && multiplier != 2) throw new IllegalArgumentException("multiplier must be 1 or 2");
     }
 
     public double cost() { return ingredient.getPrice() * multiplier; }
+
+    public double cost(PriceList prices) { return prices.priceOf(ingredient) * multiplier; }
 }
\ No newline at end of file
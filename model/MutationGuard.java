@@ -0,0 +1,28 @@
+package model;
+
+import java.util.List;
+
+// Проверки бизнес-правил перед изменением сущностей. Метод бросает IllegalArgumentException при нарушении.
+public interface MutationGuard {
+    MutationGuard NONE = new MutationGuard() { };
+
+    default void checkIngredient(Pizza pizza, Slice slice, Ingredient ingredient, int multiplier) { }
+    // Запрет бортика для конкретных пицц хранится в самом бортике и действует при любых правилах
+    default void checkSide(Pizza pizza, Slice slice, Side side) {
+        if (side.getBanPizzaIds().contains(pizza.getId()))
+            throw new IllegalArgumentException("Нельзя добавить такой борт к этой пицце");
+    }
+
+    // Одна правка пиццы на несколько кусков; по умолчанию — покусковые проверки
+    default void checkIngredients(Pizza pizza, List<Slice> slices, Ingredient ingredient, int multiplier) {
+        for (Slice slice : slices) checkIngredient(pizza, slice, ingredient, multiplier);
+    }
+    default void checkSides(Pizza pizza, List<Slice> slices, Side side) {
+        for (Slice slice : slices) checkSide(pizza, slice, side);
+    }
+    // Смена основы готовой пиццы: её ингредиенты и бортики должны подходить к новой основе
+    default void checkBase(Pizza pizza, Base base) { }
+    default void checkGuests(Order order, int newGuestCount) { }
+    default void checkIngredientPrice(Ingredient ingredient, double price) { }
+    default void checkBasePrice(Base base, double price) { }
+}
@@ -1,8 +1,12 @@
 package model;
 
+import java.util.UUID;
+
 public class NotClassicBase extends Base {
-    private static double checkedPrice(double price) {
-        double maxPrice = Base.getClassicBasePrice() * 1.2;
+    private static final long serialVersionUID = 1L;
+
+    private static double checkedPrice(double price, BasePricing pricing) {
+        double maxPrice = pricing.getMaxNotClassicPrice();
         if (price > maxPrice) {
             throw new IllegalArgumentException(
                     String.format("Стоимость не должна превышать %.2f руб. (20%% от классической)", maxPrice)
@@ -12,16 +16,18 @@ public class NotClassicBase extends Base {
         return price;
     }
 
-    public NotClassicBase(String name, double price) {
-        super(name, checkedPrice(price));
+    public NotClassicBase(String name, double price) { this(name, price, BasePricing.DEFAULT); }
+
+    public NotClassicBase(String name, double price, BasePricing pricing) {
+        super(name, checkedPrice(price, pricing), pricing);
+    }
+
+    NotClassicBase(UUID id, String name, double price, BasePricing pricing) {
+        super(id, name, checkedPrice(price, pricing), pricing);
     }
 
     @Override
     public void setPrice(double price) {
-        double maxPrice = Base.getClassicBasePrice() * 1.2;
-        if (price > maxPrice) throw new IllegalArgumentException(
-                String.format("Стоимость не должна превышать %.2f руб. (20%% от классической)", maxPrice));
-        if (price <= 0) throw new IllegalArgumentException("Цена основы должна быть > 0");
-        super.setPrice(price);
+        super.setPrice(checkedPrice(price, getPricing()));
     }
-}
\ No newline at end of file
+}
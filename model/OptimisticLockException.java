@@ -0,0 +1,23 @@
+package model;
+
+import java.util.UUID;
+
+// Сущность изменили после того, как вызывающий прочитал её версию: нужно перечитать и повторить
+public class OptimisticLockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final UUID entityId;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public OptimisticLockException(UUID entityId, long expectedVersion, long actualVersion) {
+        super("Сущность " + entityId + " уже изменена (ожидалась версия " + expectedVersion + ", текущая " + actualVersion + ")");
+        this.entityId = entityId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public UUID getEntityId() { return entityId; }
+    public long getExpectedVersion() { return expectedVersion; }
+    public long getActualVersion() { return actualVersion; }
+}
@@ -1,21 +1,178 @@
 package model;
 
+import perf.BillSplitEvent;
+import perf.DescribeEvent;
+import util.UuidDoubleMap;
+
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToDoubleFunction;
 
 public class Order extends Entity {
+    private static final long serialVersionUID = 1L;
+
     private final List<Pizza> pizzasList = new ArrayList<>();
     private final Map<UUID, List<Person>> pizzaGuests = new HashMap<>();
     private final List<Person> guests = new ArrayList<>();
     private final List<Pizza> customPizzas = new ArrayList<>();
     private String comment;
     private Instant time;
+    private transient List<OrderListener> listeners = new CopyOnWriteArrayList<>();
+    private transient MutationGuard guard;
+    private transient Promotions promotions;
+    private transient Rendered rendered;
+    private transient Priced priced;
+    private transient Runnable pizzaChanged;
+
+    private record Rendered(long version, long promoVersion, String text) { }
+
+    // Цены пицц открытого заказа с учётом акций; действительны, пока не изменились заказ или набор акций
+    private record Priced(long version, long promoVersion, UuidDoubleMap prices, UuidDoubleMap bills,
+                          double total, double discount) { }
+
+    // Заполняются при оформлении: итоги считаются один раз по зафиксированному прайс-листу
+    private PriceList priceList;
+    private double placedTotal;
+    private UuidDoubleMap placedPizzaPrices;
+    private UuidDoubleMap placedBills;
+    // Снимок (например, поднятый с диска): не меняется ни состав, ни комментарий, ни время
+    private boolean readOnly;
 
     public Order(String name) {
         super(name);
         this.time = Instant.now();
     }
 
+    // --------- Восстановление (кодек) ---------
+
+    Order(UUID id, String name, Instant time, String comment) {
+        super(id, name);
+        this.time = time;
+        this.comment = comment;
+    }
+
+    void restoreGuest(Person guest) { guests.add(guest); }
+
+    void restorePizza(Pizza pizza, boolean custom, List<Person> eaters) {
+        (custom ? customPizzas : pizzasList).add(pizza);
+        pizza.watch(pizzaChanged());
+        pizzaGuests.put(pizza.getId(), new ArrayList<>(eaters));
+    }
+
+    void restorePlacement(PriceList prices, double total, UuidDoubleMap pizzaPrices, UuidDoubleMap bills) {
+        placedPizzaPrices = pizzaPrices;
+        placedBills = bills;
+        placedTotal = total;
+        priceList = prices;
+        for (Pizza p : allPizzas()) p.freeze();
+    }
+
+    UuidDoubleMap placedPizzaPrices() { return placedPizzaPrices; }
+    UuidDoubleMap placedBills() { return placedBills; }
+    List<Person> eatersOf(Pizza pizza) { return pizzaGuests.getOrDefault(pizza.getId(), List.of()); }
+
+    public void addListener(OrderListener listener) { listeners().add(listener); }
+    public void removeListener(OrderListener listener) { listeners().remove(listener); }
+
+    // Слушатели не сериализуются: у восстановленного с диска заказа список пуст
+    private List<OrderListener> listeners() {
+        if (listeners == null) listeners = new CopyOnWriteArrayList<>();
+        return listeners;
+    }
+
+    public void setGuard(MutationGuard guard) { this.guard = guard; }
+    public void setPromotions(Promotions promotions) { this.promotions = promotions; }
+
+    // Правка пиццы внутри заказа меняет версию заказа и доходит до слушателей
+    private Runnable pizzaChanged() {
+        if (pizzaChanged == null) pizzaChanged = () -> fire(OrderChange.PIZZA_CHANGED);
+        return pizzaChanged;
+    }
+
+    private MutationGuard guard() { return guard != null ? guard : MutationGuard.NONE; }
+    private Promotions promotions() { return promotions != null ? promotions : Promotions.NONE; }
+
+    // Любое изменение заказа проходит через fire, здесь же растёт его версия
+    private void fire(OrderChange change) {
+        touch();
+        for (OrderListener l : listeners()) l.orderChanged(this, change);
+    }
+
+    private void ensureOpen() {
+        ensureWritable();
+        if (priceList != null) throw new IllegalStateException("Заказ уже оформлен, состав менять нельзя");
+    }
+
+    private void ensureWritable() {
+        if (readOnly) throw new IllegalStateException("Заказ доступен только для чтения");
+    }
+
+    public void makeReadOnly() {
+        readOnly = true;
+        for (Pizza p : allPizzas()) p.freeze();
+    }
+    public boolean isReadOnly() { return readOnly; }
+
+    public boolean isPlaced() { return priceList != null; }
+
+    // Сообщает слушателям, что цены позиций открытого заказа изменились; у оформленного заказа цены заморожены
+    public void pricesChanged() {
+        if (priceList == null) fire(OrderChange.PRICES_CHANGED);
+    }
+    public PriceList getPriceList() { return priceList; }
+
+    public void place(PriceList prices) {
+        if (prices == null) throw new IllegalArgumentException("prices null");
+        ensureOpen();
+
+        // Скидки по акциям фиксируются вместе с ценами
+        Priced placed = price(p -> p.getPrice(prices), 0, 0);
+
+        placedPizzaPrices = placed.prices();
+        placedBills = placed.bills();
+        placedTotal = placed.total();
+        priceList = prices;
+        for (Pizza p : allPizzas()) p.freeze();
+        fire(OrderChange.PLACED);
+    }
+
+    private List<Pizza> allPizzas() {
+        List<Pizza> all = new ArrayList<>(pizzasList);
+        all.addAll(customPizzas);
+        return all;
+    }
+
+    private UuidDoubleMap pizzaPrices() { return priceList != null ? placedPizzaPrices : priced().prices(); }
+
+    // Акции и делёж считаются один раз на версию заказа, а не при каждом запросе итога или счёта гостя
+    private Priced priced() {
+        long v = renderVersion(), pv = promotions().version();
+        Priced p = priced;
+        if (p == null || p.version() != v || p.promoVersion() != pv) {
+            p = price(Pizza::getPrice, v, pv);
+            priced = p;
+        }
+        return p;
+    }
+
+    private Priced price(ToDoubleFunction<Pizza> pricing, long version, long promoVersion) {
+        List<Pizza> all = allPizzas();
+        double[] prices = new double[all.size()];
+        for (int i = 0; i < prices.length; i++) prices[i] = pricing.applyAsDouble(all.get(i));
+        double[] discounts = all.isEmpty() ? null : promotions().discounts(this, Collections.unmodifiableList(all), prices);
+
+        UuidDoubleMap net = new UuidDoubleMap(all.size());
+        double total = 0, discount = 0;
+        for (int i = 0; i < prices.length; i++) {
+            double d = discounts == null ? 0 : Math.max(0, Math.min(discounts[i], prices[i]));
+            net.put(all.get(i).getId(), prices[i] - d);
+            total += prices[i] - d;
+            discount += d;
+        }
+        return new Priced(version, promoVersion, net, computeBills(p -> net.get(p.getId(), 0.0)), total, discount);
+    }
+
     public List<Person> getGuests() { return Collections.unmodifiableList(guests); }
     public List<Pizza> getPizzasList() { return Collections.unmodifiableList(pizzasList); }
     public List<Pizza> getCustomPizzas() { return Collections.unmodifiableList(customPizzas); }
@@ -33,48 +190,80 @@ public class Order extends Entity {
     }
 
     public void removeGuest(Person guest) {
+        ensureOpen();
         guests.removeIf(g -> g.getId().equals(guest.getId()));
         for (List<Person> persons : pizzaGuests.values()) {
             persons.removeIf(person -> guest.getId().equals(person.getId()));
         }
+        fire(OrderChange.GUEST_REMOVED);
     }
 
-    public void createGuest(Person guest) { guests.add(guest); }
+    public void createGuest(Person guest) {
+        ensureOpen();
+        if (guest == null) throw new IllegalArgumentException("guest null");
+        for (Person g : guests) {
+            if (g.getId().equals(guest.getId()))
+                throw new IllegalArgumentException("Гость " + guest.getName() + " уже есть в заказе");
+        }
+        guard().checkGuests(this, guests.size() + 1);
+        guests.add(guest);
+        fire(OrderChange.GUEST_ADDED);
+    }
 
     public void addGuestToPizza(Pizza pizza, Person guest) {
+        ensureOpen();
         pizzaGuests.computeIfAbsent(pizza.getId(), k -> new ArrayList<>()).add(guest);
+        fire(OrderChange.EATERS_CHANGED);
     }
 
     public void removeGuestFromPizza(Pizza pizza, Person guest) {
+        ensureOpen();
         pizzaGuests.getOrDefault(pizza.getId(), new ArrayList<>())
                 .removeIf(g -> g.getId().equals(guest.getId()));
+        fire(OrderChange.EATERS_CHANGED);
     }
 
     public void addPizza(Pizza pizza) {
+        ensureOpen();
         pizzasList.add(pizza);
+        pizza.watch(pizzaChanged());
         pizzaGuests.put(pizza.getId(), new ArrayList<>());
+        fire(OrderChange.PIZZA_ADDED);
     }
 
     public void addCustomPizza(Pizza pizza) {
+        ensureOpen();
         customPizzas.add(pizza);
+        pizza.watch(pizzaChanged());
         pizzaGuests.put(pizza.getId(), new ArrayList<>());
+        fire(OrderChange.PIZZA_ADDED);
     }
 
     public void removeAnyPizza(Pizza pizza) {
+        ensureOpen();
         pizzasList.removeIf(p -> p.getId().equals(pizza.getId()));
         customPizzas.removeIf(p -> p.getId().equals(pizza.getId()));
         pizzaGuests.remove(pizza.getId());
+        pizza.unwatch(pizzaChanged());
+        fire(OrderChange.PIZZA_REMOVED);
     }
 
     public String getComment() { return comment; }
-    public void setComment(String comment) { this.comment = comment; }
+
+    public void setComment(String comment) {
+        ensureWritable();
+        this.comment = comment;
+        fire(OrderChange.COMMENT_CHANGED);
+    }
 
     public Instant getTime() { return time; }
 
     public void setTime(Instant time) {
+        ensureWritable();
         if (time == null) throw new IllegalArgumentException("time == null");
         if (time.isBefore(Instant.now())) throw new IllegalArgumentException("Нельзя сделать заказ в прошлом");
         this.time = time;
+        fire(OrderChange.TIME_CHANGED);
     }
 
     public void postponeTo(LocalDate date, LocalTime time, ZoneId zone) {
@@ -85,26 +274,44 @@ public class Order extends Entity {
         setTime(newInstant);
     }
 
-    public double getTotalPrice() {
-        double total = 0;
-        for (Pizza p : pizzasList) total += p.getPrice();
-        for (Pizza p : customPizzas) total += p.getPrice();
-        return total;
+    public double getTotalPrice() { return priceList != null ? placedTotal : priced().total(); }
+
+    // Сумма скидок по акциям; у оформленного заказа — разница с ценами его прайс-листа
+    public double getDiscount() {
+        if (priceList == null) return priced().discount();
+        double full = 0;
+        for (Pizza p : allPizzas()) full += p.getPrice(priceList);
+        return Math.max(0, full - placedTotal);
     }
 
-    public Map<UUID, Double> splitBills() {
-        Map<UUID, Double> bills = new HashMap<>();
-        for (Person g : guests) bills.put(g.getId(), 0.0);
+    public Map<UUID, Double> splitBills() { return bills().asMap(); }
+
+    public double billOf(Person guest) { return bills().get(guest.getId(), 0.0); }
+
+    private UuidDoubleMap bills() {
+        BillSplitEvent event = new BillSplitEvent();
+        event.begin();
+        UuidDoubleMap bills = priceList != null ? placedBills : priced().bills();
+        event.end();
+        if (event.shouldCommit()) {
+            event.order = getName();
+            event.guests = guests.size();
+            event.pizzas = pizzasList.size() + customPizzas.size();
+            event.frozen = priceList != null;
+            event.commit();
+        }
+        return bills;
+    }
 
-        List<Pizza> allPizzas = new ArrayList<>();
-        allPizzas.addAll(pizzasList);
-        allPizzas.addAll(customPizzas);
+    private UuidDoubleMap computeBills(ToDoubleFunction<Pizza> pricing) {
+        UuidDoubleMap bills = new UuidDoubleMap(guests.size());
+        for (Person g : guests) bills.put(g.getId(), 0.0);
 
-        for (Pizza pizza : allPizzas) {
+        for (Pizza pizza : allPizzas()) {
             List<Person> eaters = pizzaGuests.getOrDefault(pizza.getId(), List.of());
             if (eaters.isEmpty()) continue;
 
-            double price = pizza.getPrice();
+            double price = pricing.applyAsDouble(pizza);
             int n = eaters.size();
 
             double shareRaw = price / n;
@@ -112,38 +319,69 @@ public class Order extends Entity {
             double sum = share * n;
             double diff = Math.round((price - sum) * 100.0) / 100.0;
 
-            for (Person e : eaters) bills.put(e.getId(), bills.get(e.getId()) + share);
+            for (Person e : eaters) bills.add(e.getId(), share);
 
-            if (diff > 0) {
-                Person first = eaters.get(0);
-                bills.put(first.getId(), bills.get(first.getId()) + diff);
-            }
+            if (diff > 0) bills.add(eaters.get(0).getId(), diff);
         }
         return bills;
     }
 
+    // Версия описания: сам заказ, его пиццы и справочные данные (цены, названия)
+    public long renderVersion() {
+        long v = Math.max(getVersion(), Entity.referenceVersion());
+        for (Pizza p : pizzasList) v = Math.max(v, p.renderVersion());
+        for (Pizza p : customPizzas) v = Math.max(v, p.renderVersion());
+        return v;
+    }
+
+    // Неизменившийся заказ отдаётся из кеша без пересчёта цен и дележа
     public String describe() {
+        DescribeEvent event = new DescribeEvent();
+        event.begin();
+        long v = renderVersion(), pv = promotions().version();
+        Rendered r = rendered;
+        boolean cached = r != null && r.version() == v && r.promoVersion() == pv;
+        String text = cached ? r.text() : render(v, pv);
+        event.end();
+        if (event.shouldCommit()) {
+            event.order = getName();
+            event.pizzas = pizzasList.size() + customPizzas.size();
+            event.cached = cached;
+            event.length = text.length();
+            event.commit();
+        }
+        return text;
+    }
+
+    private String render(long v, long pv) {
         StringBuilder sb = new StringBuilder();
         sb.append("Заказ №").append(getName()).append("\n");
         sb.append("Время: ").append(time).append("\n");
-        sb.append("Комментарий: ").append(comment == null ? "-" : comment).append("\n\n");
+        sb.append("Комментарий: ").append(comment == null ? "-" : comment).append("\n");
+        if (priceList != null) sb.append("Оформлен по прайс-листу v").append(priceList.getVersion()).append("\n");
+        sb.append("\n");
 
-        for (Pizza p : pizzasList) sb.append(p.describe()).append("\n");
+        UuidDoubleMap prices = pizzaPrices();
+        for (Pizza p : pizzasList) sb.append(p.describe(prices.get(p.getId(), 0.0))).append("\n");
 
         if (!customPizzas.isEmpty()) {
             sb.append("\nКастомные пиццы:\n");
-            for (Pizza p : customPizzas) sb.append("[Кастомная] ").append(p.describe()).append("\n");
+            for (Pizza p : customPizzas) sb.append("[Кастомная] ").append(p.describe(prices.get(p.getId(), 0.0))).append("\n");
         }
 
+        double discount = getDiscount();
+        if (discount >= 0.005) sb.append("Скидка по акциям: ").append(String.format("%.2f", discount)).append("\n");
         sb.append("Итого: ").append(String.format("%.2f", getTotalPrice())).append("\n");
 
-        Map<UUID, Double> bills = splitBills();
+        UuidDoubleMap bills = bills();
         sb.append("Делёж по гостям:\n");
         for (Person g : guests) {
             sb.append("  ").append(g.getName()).append(": ")
-                    .append(String.format("%.2f", bills.getOrDefault(g.getId(), 0.0)))
+                    .append(String.format("%.2f", bills.get(g.getId(), 0.0)))
                     .append("\n");
         }
-        return sb.toString();
+        String text = sb.toString();
+        rendered = new Rendered(v, pv, text);
+        return text;
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package model;
+
+public enum OrderChange {
+    CREATED,
+    GUEST_ADDED,
+    GUEST_REMOVED,
+    EATERS_CHANGED,
+    PIZZA_ADDED,
+    PIZZA_REMOVED,
+    PIZZA_CHANGED,
+    COMMENT_CHANGED,
+    TIME_CHANGED,
+    PLACED,
+    PRICES_CHANGED
+}
@@ -0,0 +1,6 @@
+package model;
+
+@FunctionalInterface
+public interface OrderListener {
+    void orderChanged(Order order, OrderChange change);
+}
@@ -1,5 +1,11 @@
 package model;
 
+import java.util.UUID;
+
 public class Person extends Entity {
+    private static final long serialVersionUID = 1L;
+
     public Person(String name) { super(name); }
+
+    Person(UUID id, String name) { super(id, name); }
 }
\ No newline at end of file
@@ -1,48 +1,127 @@
 package model;
 
+import perf.PriceEvent;
+
 import java.util.*;
 
 public class Pizza extends Slice {
+    private static final long serialVersionUID = 1L;
+
     private List<Slice> slices;
     private Base base;
     private Mode mode;
+    private transient MutationGuard guard;
+    private transient Rendered rendered;
+    // Массовая правка: изменения кусков копятся, пицца сообщает о них один раз в конце
+    private transient int bulk;
+    private transient boolean sliceChanged;
+
+    private record Rendered(long version, double price, String text) { }
+
+    private static final class Piece extends Slice {
+        private static final long serialVersionUID = 1L;
+
+        Piece(String name, Size size, Side side) { super(name, size, side); }
+    }
 
     private void initSlices() {
         slices = new ArrayList<>();
         for (int i = 0; i < getSize().getAmount(); i++) {
-            slices.add(new Slice(getName() + " кусок " + (i + 1), getSize(), getSide()) {});
+            Slice slice = new Piece(getName() + " кусок " + (i + 1), getSize(), getSide());
+            slice.watch(this::onSliceChanged);
+            slices.add(slice);
         }
     }
 
-    public Pizza(String name, Base base, Size size, Mode mode, Side side) {
-        super(name, size, side);
+    public Pizza(String name, Base base, Size size, Mode mode, Side side) { this(UUID.randomUUID(), name, base, size, mode, side); }
+
+    Pizza(UUID id, String name, Base base, Size size, Mode mode, Side side) {
+        super(id, name, size, side);
         if (base == null) throw new IllegalArgumentException("У пиццы должна быть основа");
         this.base = base;
         this.mode = mode;
         initSlices();
     }
 
+    private void onSliceChanged() {
+        if (bulk > 0) sliceChanged = true;
+        else touch();
+    }
+
+    private void bulk(Runnable edit) {
+        bulk++;
+        try {
+            edit.run();
+        } finally {
+            if (--bulk == 0 && sliceChanged) {
+                sliceChanged = false;
+                touch();
+            }
+        }
+    }
+
     public Base getBase() { return base; }
     public Mode getMode() { return mode; }
 
+    public void setGuard(MutationGuard guard) { this.guard = guard; }
+
+    // Guard не сериализуется: у восстановленной пиццы проверок нет, пока их не назначат заново
+    private MutationGuard guard() { return guard != null ? guard : MutationGuard.NONE; }
+
+    private void checkIngredient(List<Slice> targets, Ingredient ingr, int mult) {
+        guard().checkIngredients(this, targets, ingr, mult);
+    }
+
+    private void checkSide(List<Slice> targets, Side side) {
+        if (side == null) return;
+        guard().checkSides(this, targets, side);
+    }
+
     public List<Slice> getSlices() {
         return Collections.unmodifiableList(slices);
     }
 
+    // Замораживает пиццу вместе с кусками; вызывается при оформлении заказа
+    @Override
+    public void freeze() {
+        super.freeze();
+        for (Slice sl : slices) sl.freeze();
+    }
+
     public void setBase(Base base) {
+        ensureMutable();
         if (base == null) throw new IllegalArgumentException("base null");
+        guard().checkBase(this, base);
         this.base = base;
+        touch();
     }
 
     public void setMode(Mode mode) {
+        ensureMutable();
         if (mode == null) throw new IllegalArgumentException("mode null");
         this.mode = mode;
+        touch();
     }
 
     public void setSize(Size size) {
         if (size == null) throw new IllegalArgumentException("size null");
-        setSizeInternal(size);
-        initSlices();
+        // Слушатели должны увидеть новый размер уже с новыми кусками
+        bulk(() -> {
+            setSizeInternal(size);
+            initSlices();
+            sliceChanged = true;
+        });
+    }
+
+    // Правила проверяются на пустой копии куска: будущий состав набирается по одному ингредиенту,
+    // а сам кусок не меняется, пока не проверены все
+    private void checkCopy(Slice from, Slice to) {
+        Slice scratch = new Piece(to.getName(), getSize(), to.getSide());
+        MutationGuard g = guard();
+        for (IngredientPortion ip : from.getIngredients()) {
+            g.checkIngredients(this, List.of(scratch), ip.ingredient(), ip.multiplier());
+            scratch.addIngredientInternal(ip.ingredient(), ip.multiplier());
+        }
     }
 
     private void copyIngredientsFromSlice(Slice from, Slice to) {
@@ -53,13 +132,15 @@ public class Pizza extends Slice {
     }
 
     public void addIngredientsBasic(Ingredient ingr, int mult) {
-        for (Slice slice : slices) slice.addIngredient(ingr, mult);
+        checkIngredient(slices, ingr, mult);
+        bulk(() -> { for (Slice slice : slices) slice.addIngredientInternal(ingr, mult); });
     }
 
     public void addIngredientToSlice(int sliceNumber1Based, Ingredient ingr, int mult) {
         if (sliceNumber1Based < 1 || sliceNumber1Based > slices.size())
             throw new IllegalArgumentException("Неверный номер куска");
-        slices.get(sliceNumber1Based - 1).addIngredient(ingr, mult);
+        checkIngredient(slices.subList(sliceNumber1Based - 1, sliceNumber1Based), ingr, mult);
+        slices.get(sliceNumber1Based - 1).addIngredientInternal(ingr, mult);
     }
 
     public void applyHalfsFrom(Pizza pizzaA, Pizza pizzaB) {
@@ -68,26 +149,36 @@ public class Pizza extends Slice {
 
         int mid = slices.size() / 2;
 
-        for (int i = 0; i < mid; i++) copyIngredientsFromSlice(pizzaA.getSlices().get(i), slices.get(i));
-        for (int i = mid; i < slices.size(); i++) copyIngredientsFromSlice(pizzaB.getSlices().get(i), slices.get(i));
+        ensureMutable();
+        for (int i = 0; i < mid; i++) checkCopy(pizzaA.getSlices().get(i), slices.get(i));
+        for (int i = mid; i < slices.size(); i++) checkCopy(pizzaB.getSlices().get(i), slices.get(i));
+
+        bulk(() -> {
+            for (int i = 0; i < mid; i++) copyIngredientsFromSlice(pizzaA.getSlices().get(i), slices.get(i));
+            for (int i = mid; i < slices.size(); i++) copyIngredientsFromSlice(pizzaB.getSlices().get(i), slices.get(i));
+        });
     }
 
     public void addIngredientParts(Ingredient ingr, int mult, int a, int b) {
         if (a < 1 || b > slices.size() || a > b) throw new IllegalArgumentException("Неверный диапазон кусков");
-        for (int i = a - 1; i <= b - 1; i++) slices.get(i).addIngredient(ingr, mult);
+        checkIngredient(slices.subList(a - 1, b), ingr, mult);
+        bulk(() -> { for (int i = a - 1; i <= b - 1; i++) slices.get(i).addIngredientInternal(ingr, mult); });
     }
 
     public void addSideBasic(Side side) {
-        for (Slice slice : slices) slice.setSide(side, getId());
+        checkSide(slices, side);
+        bulk(() -> { for (Slice slice : slices) slice.setSideInternal(side); });
     }
 
     public void addSideHalfs(Side side, String half) {
         int mid = slices.size() / 2;
 
         if ("A".equals(half)) {
-            for (int i = 0; i < mid; i++) slices.get(i).setSide(side, getId());
+            checkSide(slices.subList(0, mid), side);
+            bulk(() -> { for (int i = 0; i < mid; i++) slices.get(i).setSideInternal(side); });
         } else if ("B".equals(half)) {
-            for (int i = mid; i < slices.size(); i++) slices.get(i).setSide(side, getId());
+            checkSide(slices.subList(mid, slices.size()), side);
+            bulk(() -> { for (int i = mid; i < slices.size(); i++) slices.get(i).setSideInternal(side); });
         } else {
             throw new IllegalArgumentException("half должен быть A или B");
         }
@@ -95,26 +186,29 @@ public class Pizza extends Slice {
 
     public void addSideParts(Side side, int a, int b) {
         if (a < 1 || b > slices.size() || a > b) throw new IllegalArgumentException("Неверный диапазон");
-        for (int i = a - 1; i <= b - 1; i++) slices.get(i).setSide(side, getId());
+        checkSide(slices.subList(a - 1, b), side);
+        bulk(() -> { for (int i = a - 1; i <= b - 1; i++) slices.get(i).setSideInternal(side); });
     }
 
     public void setSideToSlice(int sliceNumber1Based, Side side) {
         if (sliceNumber1Based < 1 || sliceNumber1Based > slices.size())
             throw new IllegalArgumentException("Неверный номер куска");
-        slices.get(sliceNumber1Based - 1).setSide(side, getId());
+        checkSide(slices.subList(sliceNumber1Based - 1, sliceNumber1Based), side);
+        slices.get(sliceNumber1Based - 1).setSideInternal(side);
     }
 
     public void removeIngredientEverywhere(UUID ingredientId) {
-        for (Slice sl : slices) sl.removeIngredient(ingredientId);
+        bulk(() -> { for (Slice sl : slices) sl.removeIngredient(ingredientId); });
     }
 
     public void clearIngredientsEverywhere() {
-        for (Slice sl : slices) sl.clearIngredientsInternal();
+        bulk(() -> { for (Slice sl : slices) sl.clearIngredientsInternal(); });
     }
 
     public double getPrice() {
-        double total = 0;
-        total += base.getPrice();
+        PriceEvent event = new PriceEvent();
+        event.begin();
+        double total = base.getPrice();
 
         for (Slice slice : slices) {
             for (IngredientPortion ip : slice.getIngredients()) total += ip.cost();
@@ -127,16 +221,89 @@ public class Pizza extends Slice {
                 .mapToDouble(Side::getPrice)
                 .sum();
 
+        commit(event);
         return total;
     }
 
+    public double getPrice(PriceList prices) {
+        PriceEvent event = new PriceEvent();
+        event.begin();
+        double total = prices.priceOf(base);
+
+        for (Slice slice : slices) {
+            for (IngredientPortion ip : slice.getIngredients()) total += ip.cost(prices);
+        }
+
+        total += slices.stream()
+                .map(Slice::getSide)
+                .filter(Objects::nonNull)
+                .distinct()
+                .mapToDouble(prices::priceOf)
+                .sum();
+
+        commit(event);
+        return total;
+    }
+
+    // Поля события заполняются, только если оно будет записано
+    private void commit(PriceEvent event) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        int portions = 0;
+        for (Slice slice : slices) portions += slice.getIngredients().size();
+        event.pizza = getName();
+        event.slices = slices.size();
+        event.portions = portions;
+        event.commit();
+    }
+
+    // Расход ингредиентов в порциях: множитель на каждом куске с поправкой на размер, включая бортики
+    public Map<UUID, Double> ingredientUsage() {
+        Map<UUID, Double> usage = new HashMap<>();
+        double k = getSize().getK();
+
+        for (Slice slice : slices) {
+            for (IngredientPortion ip : slice.getIngredients()) {
+                usage.merge(ip.ingredient().getId(), ip.multiplier() * k, Double::sum);
+            }
+            if (slice.getSide() != null) {
+                for (IngredientPortion ip : slice.getSide().getIngredients()) {
+                    usage.merge(ip.ingredient().getId(), ip.multiplier() * k, Double::sum);
+                }
+            }
+        }
+        return usage;
+    }
+
+    // Версия описания: сама пицца, её куски и справочные данные (цены, названия)
+    public long renderVersion() {
+        long v = Math.max(getVersion(), Entity.referenceVersion());
+        for (Slice sl : slices) v = Math.max(v, sl.getVersion());
+        return v;
+    }
+
+    // Описание кешируется, пока не изменилась версия; цена тоже определяется версией
     public String describe() {
+        long v = renderVersion();
+        Rendered r = rendered;
+        if (r != null && r.version() == v) return r.text();
+        return render(v, getPrice());
+    }
+
+    public String describe(double price) {
+        long v = renderVersion();
+        Rendered r = rendered;
+        if (r != null && r.version() == v && r.price() == price) return r.text();
+        return render(v, price);
+    }
+
+    private String render(long version, double price) {
         StringBuilder sb = new StringBuilder();
         sb.append("Пицца: ").append(getName())
                 .append(", размер: ").append(getSize().getName())
                 .append(", основа: ").append(base.getName())
                 .append(", режим: ").append(mode.getName())
-                .append(", цена: ").append(String.format("%.2f", getPrice()))
+                .append(", цена: ").append(String.format("%.2f", price))
                 .append("\n");
 
         for (int i = 0; i < slices.size(); i++) {
@@ -153,6 +320,8 @@ public class Pizza extends Slice {
             }
             sb.append("]\n");
         }
-        return sb.toString();
+        String text = sb.toString();
+        rendered = new Rendered(version, price, text);
+        return text;
     }
 }
\ No newline at end of file
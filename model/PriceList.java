@@ -0,0 +1,77 @@
+package model;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Неизменяемый снимок цен каталога. Заказ фиксирует версию при оформлении и считается только по ней.
+// Позиции, которых нет в снимке, берутся по текущей цене.
+// Версия хранит только цены, изменившиеся относительно предыдущей, и ссылку на неё; раз в MAX_DEPTH
+// версий цепочка сворачивается в полный снимок, чтобы поиск цены оставался коротким.
+public final class PriceList implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_DEPTH = 16;
+
+    private final long version;
+    private final PriceList parent;
+    private final int depth;
+    private final Map<UUID, Double> ingredients;
+    private final Map<UUID, Double> bases;
+    private final Map<UUID, Double> sides;
+
+    public PriceList(long version, Map<UUID, Double> ingredients, Map<UUID, Double> bases, Map<UUID, Double> sides) {
+        this(version, null, ingredients, bases, sides);
+    }
+
+    private PriceList(long version, PriceList parent, Map<UUID, Double> ingredients, Map<UUID, Double> bases, Map<UUID, Double> sides) {
+        this.version = version;
+        this.parent = parent;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+        this.ingredients = Map.copyOf(ingredients);
+        this.bases = Map.copyOf(bases);
+        this.sides = Map.copyOf(sides);
+    }
+
+    // Следующая версия по полному набору текущих цен: сохраняется только разница с этой версией
+    public PriceList next(Map<UUID, Double> ingredients, Map<UUID, Double> bases, Map<UUID, Double> sides) {
+        if (depth + 1 >= MAX_DEPTH) return new PriceList(version + 1, ingredients, bases, sides);
+        return new PriceList(version + 1, this, changed(ingredients, 0), changed(bases, 1), changed(sides, 2));
+    }
+
+    private Map<UUID, Double> changed(Map<UUID, Double> prices, int kind) {
+        Map<UUID, Double> diff = new HashMap<>();
+        for (var e : prices.entrySet()) {
+            if (!e.getValue().equals(lookup(kind, e.getKey()))) diff.put(e.getKey(), e.getValue());
+        }
+        return diff;
+    }
+
+    private Double lookup(int kind, UUID id) {
+        for (PriceList p = this; p != null; p = p.parent) {
+            Double v = (kind == 0 ? p.ingredients : kind == 1 ? p.bases : p.sides).get(id);
+            if (v != null) return v;
+        }
+        return null;
+    }
+
+    public static PriceList empty() { return new PriceList(0, Map.of(), Map.of(), Map.of()); }
+
+    public long getVersion() { return version; }
+
+    public double priceOf(Ingredient ingredient) {
+        Double p = lookup(0, ingredient.getId());
+        return p != null ? p : ingredient.getPrice();
+    }
+
+    public double priceOf(Base base) {
+        Double p = lookup(1, base.getId());
+        return p != null ? p : base.getPrice();
+    }
+
+    public double priceOf(Side side) {
+        Double p = lookup(2, side.getId());
+        return p != null ? p : side.getPrice(this);
+    }
+}
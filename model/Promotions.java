@@ -0,0 +1,15 @@
+package model;
+
+import java.util.List;
+
+// Акции при расчёте заказа. Возвращает скидку в рублях на каждую пиццу (в порядке pizzas,
+// не больше её цены) или null, если скидок нет.
+@FunctionalInterface
+public interface Promotions {
+    Promotions NONE = (order, pizzas, prices) -> null;
+
+    double[] discounts(Order order, List<Pizza> pizzas, double[] prices);
+
+    // Меняется при замене набора акций: по ней заказ понимает, что посчитанные цены устарели
+    default long version() { return 0; }
+}
@@ -3,17 +3,22 @@ package model;
 import java.util.*;
 
 public class Side extends Entity {
+    private static final long serialVersionUID = 1L;
+
     private final List<IngredientPortion> ingredients = new ArrayList<>();
     private final List<UUID> banPizzaIds = new ArrayList<>();
 
     public Side(String name) { super(name); }
 
+    Side(UUID id, String name) { super(id, name); }
+
     public void addIngredient(Ingredient ingredient, int mult) {
         ingredients.add(new IngredientPortion(ingredient, mult));
+        touchReference();
     }
 
     public void removeIngredient(UUID ingredientId) {
-        ingredients.removeIf(p -> p.ingredient().getId().equals(ingredientId));
+        if (ingredients.removeIf(p -> p.ingredient().getId().equals(ingredientId))) touchReference();
     }
 
     public List<IngredientPortion> getIngredients() {
@@ -26,10 +31,21 @@ public class Side extends Entity {
         return total;
     }
 
-    public void addBanPizza(Pizza pizza) { banPizzaIds.add(pizza.getId()); }
+    public double getPrice(PriceList prices) {
+        double total = 0;
+        for (IngredientPortion ip : ingredients) total += ip.cost(prices);
+        return total;
+    }
+
+    public void addBanPizza(Pizza pizza) { banPizzaId(pizza.getId()); }
+
+    void banPizzaId(UUID pizzaId) {
+        banPizzaIds.add(pizzaId);
+        touch();
+    }
 
     public void removeBanPizza(Pizza pizza) {
-        banPizzaIds.removeIf(id -> id.equals(pizza.getId()));
+        if (banPizzaIds.removeIf(id -> id.equals(pizza.getId()))) touch();
     }
 
     public List<UUID> getBanPizzaIds() {
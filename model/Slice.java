@@ -3,18 +3,28 @@ package model;
 import java.util.*;
 
 public abstract class Slice extends Entity {
+    private static final long serialVersionUID = 1L;
+
     private final List<IngredientPortion> ingredients = new ArrayList<>();
     private Size size;
     private Side side;
+    // Пицца оформленного заказа: состав зафиксирован вместе с ценами
+    private boolean frozen;
+
+    protected Slice(String name, Size size, Side side) { this(UUID.randomUUID(), name, size, side); }
 
-    protected Slice(String name, Size size, Side side) {
-        super(name);
+    protected Slice(UUID id, String name, Size size, Side side) {
+        super(id, name);
         this.size = size;
         this.side = side;
     }
 
     public final Size getSize() { return size; }
-    protected final void setSizeInternal(Size size) { this.size = size; }
+    // Без touch: пицца сообщает об изменении сама, когда пересоберёт куски под новый размер
+    protected final void setSizeInternal(Size size) {
+        ensureMutable();
+        this.size = size;
+    }
 
     public final Side getSide() { return side; }
 
@@ -22,23 +32,35 @@ public abstract class Slice extends Entity {
         return Collections.unmodifiableList(ingredients);
     }
 
-    public final void addIngredient(Ingredient ingredient, int mult) {
-        ingredients.add(new IngredientPortion(ingredient, mult));
+    public final boolean isFrozen() { return frozen; }
+
+    protected void freeze() { frozen = true; }
+
+    protected final void ensureMutable() {
+        if (frozen) throw new IllegalStateException("Пицца в оформленном заказе, менять её нельзя");
     }
 
     public final void removeIngredient(UUID ingredientId) {
-        ingredients.removeIf(p -> p.ingredient().getId().equals(ingredientId));
+        ensureMutable();
+        if (ingredients.removeIf(p -> p.ingredient().getId().equals(ingredientId))) touch();
     }
 
-    public final void setSide(Side side, java.util.UUID pizzaId) {
-        if (side == null) { this.side = null; return; }
-        if (!side.getBanPizzaIds().contains(pizzaId)) this.side = side;
-        else throw new IllegalArgumentException("Нельзя добавить такой борт к этой пицце");
+    // Состав куска меняет только пицца: она прогоняет правила (MutationGuard) до изменения
+    protected final void setSideInternal(Side side) {
+        ensureMutable();
+        this.side = side;
+        touch();
     }
 
-    protected final void clearIngredientsInternal() { ingredients.clear(); }
+    protected final void clearIngredientsInternal() {
+        ensureMutable();
+        ingredients.clear();
+        touch();
+    }
 
     protected final void addIngredientInternal(Ingredient ingredient, int mult) {
+        ensureMutable();
         ingredients.add(new IngredientPortion(ingredient, mult));
+        touch();
     }
 }
\ No newline at end of file
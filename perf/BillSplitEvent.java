@@ -0,0 +1,25 @@
+package perf;
+
+import jdk.jfr.*;
+
+// Делёж счёта заказа по гостям (Order.splitBills)
+@Name("pizza.BillSplit")
+@Label("Bill Split")
+@Category({"Pizza", "Orders"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class BillSplitEvent extends Event {
+    @Label("Order")
+    public String order;
+
+    @Label("Guests")
+    public int guests;
+
+    @Label("Pizzas")
+    public int pizzas;
+
+    @Label("Frozen")
+    @Description("Заказ оформлен, счёт взят из зафиксированных итогов")
+    public boolean frozen;
+}
@@ -0,0 +1,25 @@
+package perf;
+
+import jdk.jfr.*;
+
+// Построение текстового описания заказа (Order.describe)
+@Name("pizza.Describe")
+@Label("Order Describe")
+@Category({"Pizza", "Orders"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class DescribeEvent extends Event {
+    @Label("Order")
+    public String order;
+
+    @Label("Pizzas")
+    public int pizzas;
+
+    @Label("Cached")
+    public boolean cached;
+
+    @Label("Length")
+    @DataAmount(DataAmount.BYTES)
+    public int length;
+}
@@ -0,0 +1,22 @@
+package perf;
+
+import jdk.jfr.*;
+
+// Проход фильтра по репозиторию (Repository.filter)
+@Name("pizza.RepositoryFilter")
+@Label("Repository Filter")
+@Category({"Pizza", "Repository"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class FilterEvent extends Event {
+    @Label("Entities")
+    public int scanned;
+
+    @Label("Matched")
+    public int matched;
+
+    @Label("Parallel Parts")
+    @Description("1 — последовательный проход")
+    public int parts;
+}
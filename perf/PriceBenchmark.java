@@ -0,0 +1,69 @@
+package perf;
+
+import jdk.jfr.Recording;
+import model.*;
+
+import java.time.Duration;
+import java.util.Objects;
+
+// Замер накладных расходов PriceEvent в Pizza.getPrice:
+//   java -cp <classes> perf.PriceBenchmark [итераций]
+// Сравниваются расчёт той же цены без события, getPrice с выключенным событием
+// и getPrice под записью JFR с включённым pizza.Price (порог 500 мкс, как в pizza.jfc).
+public final class PriceBenchmark {
+    private static final int ROUNDS = 5;
+
+    private static volatile double sink;
+
+    private PriceBenchmark() { }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Pizza pizza = samplePizza();
+
+        for (int r = 1; r <= ROUNDS; r++) {
+            double plain = measure(iterations, () -> sink = plainPrice(pizza));
+            double off = measure(iterations, () -> sink = pizza.getPrice());
+            double on;
+            try (Recording rec = new Recording()) {
+                rec.enable("pizza.Price").withThreshold(Duration.ofNanos(500_000)).withoutStackTrace();
+                rec.start();
+                on = measure(iterations, () -> sink = pizza.getPrice());
+                rec.stop();
+            }
+            System.out.printf("Раунд %d: без события %.1f нс, событие выключено %.1f нс, запись JFR %.1f нс%n",
+                    r, plain, off, on);
+        }
+    }
+
+    // Средняя длительность одного вызова в наносекундах
+    private static double measure(int iterations, Runnable body) {
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) body.run();
+        return (double) (System.nanoTime() - t0) / iterations;
+    }
+
+    // Тот же расчёт, что в Pizza.getPrice, но без PriceEvent
+    private static double plainPrice(Pizza pizza) {
+        double total = pizza.getBase().getPrice();
+        for (Slice slice : pizza.getSlices()) {
+            for (IngredientPortion ip : slice.getIngredients()) total += ip.cost();
+        }
+        total += pizza.getSlices().stream()
+                .map(Slice::getSide)
+                .filter(Objects::nonNull)
+                .distinct()
+                .mapToDouble(Side::getPrice)
+                .sum();
+        return total;
+    }
+
+    private static Pizza samplePizza() {
+        Pizza p = new Pizza("Замер", new ClassicBase(), Size.LARGE, Mode.BASIC, null);
+        p.addIngredientsBasic(new Ingredient("Сыр", 30), 2);
+        p.addIngredientsBasic(new Ingredient("Томаты", 20), 1);
+        p.addIngredientParts(new Ingredient("Колбаски", 35), 1, 1, 6);
+        p.addSideBasic(new Side("Сырный"));
+        return p;
+    }
+}
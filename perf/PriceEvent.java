@@ -0,0 +1,21 @@
+package perf;
+
+import jdk.jfr.*;
+
+// Расчёт цены пиццы (Pizza.getPrice, в том числе по зафиксированному прайс-листу)
+@Name("pizza.Price")
+@Label("Pizza Price")
+@Category({"Pizza", "Pricing"})
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public final class PriceEvent extends Event {
+    @Label("Pizza")
+    public String pizza;
+
+    @Label("Slices")
+    public int slices;
+
+    @Label("Portions")
+    public int portions;
+}
@@ -0,0 +1,35 @@
+package perf;
+
+import jdk.jfr.*;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Вызов фильтра App (pizzasBySize, ordersAtDay и т. д.)
+@Name("pizza.Query")
+@Label("App Query")
+@Category({"Pizza", "Queries"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class QueryEvent extends Event {
+    @Label("Query")
+    public String query;
+
+    @Label("Result Size")
+    public int resultSize;
+
+    // Выключенное событие стоит одной проверки shouldCommit
+    public static <T> List<T> record(String query, Supplier<List<T>> body) {
+        QueryEvent e = new QueryEvent();
+        e.begin();
+        List<T> result = body.get();
+        e.end();
+        if (e.shouldCommit()) {
+            e.query = query;
+            e.resultSize = result.size();
+            e.commit();
+        }
+        return result;
+    }
+}
@@ -3,6 +3,7 @@ package repo;
 
 import model.Entity;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public interface CrudRepository<T extends Entity> {
@@ -11,4 +12,17 @@ public interface CrudRepository<T extends Entity> {
     void remove(UUID id);
     List<T> all();
     List<T> filter(Predicate<T> predicate);
+
+    // maxParallelism ограничивает число потоков на один вызов; хранилища без параллельного режима его игнорируют
+    default List<T> filter(Predicate<T> predicate, int maxParallelism) { return filter(predicate); }
+
+    long version();
+
+    // Оптимистичное изменение: бросает OptimisticLockException, если сущность уже изменили; возвращает новую версию
+    default long update(UUID id, long expectedVersion, Consumer<? super T> mutation) {
+        if (mutation == null) throw new IllegalArgumentException("mutation null");
+        T obj = get(id);
+        if (obj == null) throw new IllegalArgumentException("Нет сущности с id=" + id);
+        return obj.updateIfVersion(expectedVersion, () -> mutation.accept(obj));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package repo;
+
+import model.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.*;
+
+// Колоночный архив закрытых заказов вне кучи: одна строка на заказ, колонки в direct-буферах.
+// Сканы работают по колонкам и возвращают id заказов, не создавая объектов модели.
+public class OrderArchive {
+    private record PizzaConfig(String name, Size size, Mode mode, UUID baseId) {
+        static PizzaConfig of(Pizza p) { return new PizzaConfig(p.getName(), p.getSize(), p.getMode(), p.getBase().getId()); }
+    }
+
+    private static final class Column {
+        private final int width;
+        private ByteBuffer buf;
+
+        Column(int width, int capacity) {
+            this.width = width;
+            this.buf = ByteBuffer.allocateDirect(width * capacity).order(ByteOrder.nativeOrder());
+        }
+
+        int capacity() { return buf.capacity() / width; }
+
+        void ensure(int rows, int used) {
+            if (rows <= capacity()) return;
+            int cap = Math.max(rows, capacity() * 2);
+            ByteBuffer next = ByteBuffer.allocateDirect(width * cap).order(ByteOrder.nativeOrder());
+            ByteBuffer old = buf.duplicate();
+            old.position(0).limit(used * width);
+            next.put(old).clear();
+            buf = next;
+        }
+    }
+
+    private static final int INITIAL = 1024;
+
+    private final Column idHi = new Column(8, INITIAL);
+    private final Column idLo = new Column(8, INITIAL);
+    private final Column time = new Column(8, INITIAL);
+    private final Column total = new Column(8, INITIAL);
+    private final Column guests = new Column(4, INITIAL);
+    private final Column pizzaStart = new Column(4, INITIAL);
+    private final Column pizzaCount = new Column(4, INITIAL);
+    private final Column pizzaRefs = new Column(4, INITIAL);
+    private final Map<UUID, Column> ingredientQty = new HashMap<>();
+
+    private final Map<PizzaConfig, Integer> configIds = new HashMap<>();
+    private int rows = 0;
+    private int refs = 0;
+
+    public synchronized void append(Order o) {
+        List<Pizza> pizzas = new ArrayList<>(o.getPizzasList());
+        pizzas.addAll(o.getCustomPizzas());
+
+        ensureRows(rows + 1);
+        pizzaRefs.ensure(refs + pizzas.size(), refs);
+
+        int r = rows;
+        idHi.buf.putLong(r * 8, o.getId().getMostSignificantBits());
+        idLo.buf.putLong(r * 8, o.getId().getLeastSignificantBits());
+        time.buf.putLong(r * 8, o.getTime().toEpochMilli());
+        total.buf.putDouble(r * 8, o.getTotalPrice());
+        guests.buf.putInt(r * 4, o.getGuests().size());
+        pizzaStart.buf.putInt(r * 4, refs);
+        pizzaCount.buf.putInt(r * 4, pizzas.size());
+
+        Map<UUID, Double> usage = new HashMap<>();
+        for (Pizza p : pizzas) {
+            int cfg = configIds.computeIfAbsent(PizzaConfig.of(p), k -> configIds.size());
+            pizzaRefs.buf.putInt(refs * 4, cfg);
+            refs++;
+            p.ingredientUsage().forEach((id, q) -> usage.merge(id, q, Double::sum));
+        }
+        for (var e : usage.entrySet()) {
+            Column c = ingredientQty.computeIfAbsent(e.getKey(), k -> new Column(8, idHi.capacity()));
+            c.ensure(idHi.capacity(), rows);
+            c.buf.putDouble(r * 8, e.getValue());
+        }
+        rows++;
+    }
+
+    public synchronized int size() { return rows; }
+
+    public synchronized int pizzaConfigCount() { return configIds.size(); }
+
+    // --------- Сканы ---------
+
+    public synchronized List<UUID> ordersMoreThan(double minTotal) {
+        List<UUID> result = new ArrayList<>();
+        for (int r = 0; r < rows; r++) if (total.buf.getDouble(r * 8) > minTotal) result.add(id(r));
+        return result;
+    }
+
+    public synchronized List<UUID> ordersBetween(Instant from, Instant to) {
+        long a = from.toEpochMilli(), b = to.toEpochMilli();
+        List<UUID> result = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            long t = time.buf.getLong(r * 8);
+            if (t >= a && t < b) result.add(id(r));
+        }
+        return result;
+    }
+
+    public synchronized List<UUID> ordersWithMinGuests(int n) {
+        List<UUID> result = new ArrayList<>();
+        for (int r = 0; r < rows; r++) if (guests.buf.getInt(r * 4) >= n) result.add(id(r));
+        return result;
+    }
+
+    // Пицца ищется по конфигурации (название, размер, режим, основа): в заказы кладутся копии из каталога
+    public synchronized List<UUID> ordersWithPizza(Pizza pizza) {
+        Integer cfg = configIds.get(PizzaConfig.of(pizza));
+        if (cfg == null) return List.of();
+        List<UUID> result = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            int start = pizzaStart.buf.getInt(r * 4), n = pizzaCount.buf.getInt(r * 4);
+            for (int i = start; i < start + n; i++) {
+                if (pizzaRefs.buf.getInt(i * 4) == cfg) {
+                    result.add(id(r));
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<UUID> ordersWithIngredient(UUID ingredientId) {
+        Column c = ingredientQty.get(ingredientId);
+        if (c == null) return List.of();
+        List<UUID> result = new ArrayList<>();
+        for (int r = 0; r < rows; r++) if (c.buf.getDouble(r * 8) > 0) result.add(id(r));
+        return result;
+    }
+
+    public synchronized double revenueBetween(Instant from, Instant to) {
+        long a = from.toEpochMilli(), b = to.toEpochMilli();
+        double sum = 0;
+        for (int r = 0; r < rows; r++) {
+            long t = time.buf.getLong(r * 8);
+            if (t >= a && t < b) sum += total.buf.getDouble(r * 8);
+        }
+        return sum;
+    }
+
+    public synchronized double consumptionBetween(UUID ingredientId, Instant from, Instant to) {
+        Column c = ingredientQty.get(ingredientId);
+        if (c == null) return 0;
+        long a = from.toEpochMilli(), b = to.toEpochMilli();
+        double sum = 0;
+        for (int r = 0; r < rows; r++) {
+            long t = time.buf.getLong(r * 8);
+            if (t >= a && t < b) sum += c.buf.getDouble(r * 8);
+        }
+        return sum;
+    }
+
+    private UUID id(int r) { return new UUID(idHi.buf.getLong(r * 8), idLo.buf.getLong(r * 8)); }
+
+    private void ensureRows(int n) {
+        for (Column c : List.of(idHi, idLo, time, total, guests, pizzaStart, pizzaCount)) c.ensure(n, rows);
+        for (Column c : ingredientQty.values()) c.ensure(n, rows);
+    }
+}
@@ -2,15 +2,260 @@ package repo;
 
 
 import model.Entity;
+import perf.FilterEvent;
+import util.UuidMap;
+
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 public class Repository<T extends Entity> implements CrudRepository<T> {
-    private final Map<UUID, T> data = new HashMap<>();
-
-    public void add(T obj) { data.put(obj.getId(), obj); }
-    public T get(UUID id) { return data.get(id); }
-    public void remove(UUID id) { data.remove(id); }
-    public List<T> all() { return new ArrayList<>(data.values()); }
-    public List<T> filter(Predicate<T> predicate) { return data.values().stream().filter(predicate).toList(); }
-}
\ No newline at end of file
+    // Параллельный фильтр включается, только если элементов много и оценка работы по выборке
+    // заметно больше накладных расходов fork-join
+    private static final int PARALLEL_MIN_SIZE = 1024;
+    private static final int SAMPLE_SIZE = 64;
+    private static final long PARALLEL_MIN_NANOS = 200_000;
+
+    // Вторичный индекс: ключ извлекается из сущности функцией, уникальный индекс запрещает дубликаты при add.
+    // При изменении сущности (Entity.watch) её ключи пересчитываются; уникальность при этом не проверяется,
+    // потому что изменение уже произошло, — переименование в занятый ключ нужно проверять до него.
+    // Последний ключ каждой сущности хранится в keyOf: если он не изменился, индекс не трогается.
+    public static final class Index<T extends Entity, K> {
+        private final String name;
+        private final Function<? super T, ? extends K> extractor;
+        private final boolean unique;
+        private final Map<Object, Map<UUID, T>> entries = new HashMap<>();
+        private final UuidMap<Object> keyOf = new UuidMap<>();
+
+        private Index(String name, Function<? super T, ? extends K> extractor, boolean unique) {
+            this.name = name;
+            this.extractor = extractor;
+            this.unique = unique;
+        }
+
+        public String getName() { return name; }
+        public boolean isUnique() { return unique; }
+
+        private void checkUnique(T obj) {
+            if (!unique) return;
+            K key = extractor.apply(obj);
+            if (key == null) return;
+            for (T other : entries.getOrDefault(key, Map.of()).values()) {
+                if (!other.getId().equals(obj.getId()))
+                    throw new IllegalArgumentException("Уже есть запись с таким ключом (" + name + "): " + key);
+            }
+        }
+
+        private boolean isCurrent(T obj, Object key) { return Objects.equals(keyOf.get(obj.getId()), key); }
+
+        private void put(T obj) {
+            K key = extractor.apply(obj);
+            Object old = keyOf.get(obj.getId());
+            if (old != null && old.equals(key) && entries.get(old).get(obj.getId()) == obj) return;
+            remove(obj);
+            if (key == null) return;
+            entries.computeIfAbsent(key, k -> new LinkedHashMap<>(2)).put(obj.getId(), obj);
+            keyOf.put(obj.getId(), key);
+        }
+
+        private void remove(T obj) {
+            Object old = keyOf.remove(obj.getId());
+            if (old == null) return;
+            Map<UUID, T> bucket = entries.get(old);
+            bucket.remove(obj.getId());
+            if (bucket.isEmpty()) entries.remove(old);
+        }
+    }
+
+    // Ключи — половины UUID в массивах long; чтения идут параллельно под read-lock
+    private final UuidMap<T> data = new UuidMap<>();
+    private final UuidMap<Runnable> watchers = new UuidMap<>();
+    private final List<Index<T, ?>> indexes = new CopyOnWriteArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+
+    public void add(T obj) {
+        Runnable watcher = () -> changed(obj);
+        T old;
+        Runnable oldWatcher;
+        lock.writeLock().lock();
+        try {
+            for (Index<T, ?> idx : indexes) idx.checkUnique(obj);
+            old = data.put(obj.getId(), obj);
+            oldWatcher = watchers.put(obj.getId(), watcher);
+            if (old != null) for (Index<T, ?> idx : indexes) idx.remove(old);
+            for (Index<T, ?> idx : indexes) idx.put(obj);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (old != null) old.unwatch(oldWatcher);
+        obj.watch(watcher);
+        version.incrementAndGet();
+    }
+
+    public T get(UUID id) {
+        lock.readLock().lock();
+        try {
+            return data.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        T old;
+        Runnable watcher;
+        lock.writeLock().lock();
+        try {
+            old = data.remove(id);
+            watcher = watchers.remove(id);
+            if (old != null) for (Index<T, ?> idx : indexes) idx.remove(old);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (old != null) {
+            old.unwatch(watcher);
+            version.incrementAndGet();
+        }
+    }
+
+    // Ключи сверяются под read-lock; write-lock берётся, только если хотя бы один ключ изменился.
+    // Под write-lock ключи извлекаются заново, поэтому позднее изменение не затрётся ранним
+    private void changed(T obj) {
+        version.incrementAndGet();
+        if (indexes.isEmpty() || !keysChanged(obj)) return;
+        lock.writeLock().lock();
+        try {
+            if (data.get(obj.getId()) == obj) for (Index<T, ?> idx : indexes) idx.put(obj);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean keysChanged(T obj) {
+        List<Object> keys = new ArrayList<>(indexes.size());
+        for (Index<T, ?> idx : indexes) keys.add(idx.extractor.apply(obj));
+        lock.readLock().lock();
+        try {
+            if (data.get(obj.getId()) != obj) return false;
+            for (int i = 0; i < keys.size() && i < indexes.size(); i++) {
+                if (!indexes.get(i).isCurrent(obj, keys.get(i))) return true;
+            }
+            return keys.size() != indexes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --------- Вторичные индексы ---------
+
+    // Индекс строится сразу по текущему содержимому; для уникального индекса дубликаты — ошибка
+    public <K> Index<T, K> addIndex(String name, Function<? super T, ? extends K> extractor, boolean unique) {
+        if (name == null || extractor == null) throw new IllegalArgumentException("name/extractor null");
+        Index<T, K> idx = new Index<>(name, extractor, unique);
+        lock.writeLock().lock();
+        try {
+            for (T obj : data.values()) {
+                idx.checkUnique(obj);
+                idx.put(obj);
+            }
+            indexes.add(idx);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return idx;
+    }
+
+    public <K> List<T> findBy(Index<T, K> index, K key) {
+        if (index == null) throw new IllegalArgumentException("index null");
+        lock.readLock().lock();
+        try {
+            Map<UUID, T> found = index.entries.get(key);
+            return found == null ? List.of() : List.copyOf(found.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public <K> T findOne(Index<T, K> index, K key) {
+        List<T> found = findBy(index, key);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    public List<T> all() {
+        lock.readLock().lock();
+        try {
+            return data.values();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<T> filter(Predicate<T> predicate) { return filter(predicate, defaultParallelism()); }
+
+    // Порядок результата тот же, что у последовательного обхода: снимок в массив, маска совпадений по кускам
+    public List<T> filter(Predicate<T> predicate, int maxParallelism) {
+        if (predicate == null) throw new IllegalArgumentException("predicate null");
+        if (maxParallelism < 1) throw new IllegalArgumentException("Параллелизм должен быть >= 1");
+        FilterEvent event = new FilterEvent();
+        event.begin();
+
+        @SuppressWarnings("unchecked")
+        T[] items = (T[]) all().toArray(new Entity[0]);
+        int n = items.length;
+        boolean[] match = new boolean[n];
+
+        int sampled = 0;
+        if (n >= PARALLEL_MIN_SIZE && maxParallelism > 1) {
+            sampled = Math.min(SAMPLE_SIZE, n);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < sampled; i++) match[i] = predicate.test(items[i]);
+            long perItem = (System.nanoTime() - t0) / sampled;
+
+            if (perItem * (n - sampled) >= PARALLEL_MIN_NANOS) {
+                int parts = Math.min(maxParallelism, n - sampled);
+                List<RecursiveAction> tasks = new ArrayList<>(parts);
+                int from = sampled, step = (n - sampled + parts - 1) / parts;
+                for (int p = 0; p < parts && from < n; p++, from += step) {
+                    int lo = from, hi = Math.min(n, from + step);
+                    tasks.add(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            for (int i = lo; i < hi; i++) match[i] = predicate.test(items[i]);
+                        }
+                    });
+                }
+                ForkJoinTask.invokeAll(tasks);
+                return collect(items, match, tasks.size(), event);
+            }
+        }
+
+        for (int i = sampled; i < n; i++) match[i] = predicate.test(items[i]);
+        return collect(items, match, 1, event);
+    }
+
+    // Растёт при add/remove и при любом изменении хранимых сущностей
+    public long version() { return version.get(); }
+
+    private static int defaultParallelism() { return ForkJoinPool.getCommonPoolParallelism() + 1; }
+
+    private static <T> List<T> collect(T[] items, boolean[] match, int parts, FilterEvent event) {
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < items.length; i++) if (match[i]) result.add(items[i]);
+        event.end();
+        if (event.shouldCommit()) {
+            event.scanned = items.length;
+            event.matched = result.size();
+            event.parts = parts;
+            event.commit();
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
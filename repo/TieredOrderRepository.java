@@ -0,0 +1,253 @@
+package repo;
+
+import model.BinaryCodec;
+import model.Order;
+import util.UuidMap;
+
+import java.io.*;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Горячие заказы — в памяти, оформленные заказы старше maxHotAge — в сжатых блоках на диске.
+// Блок — отсортированная по времени пачка заказов в формате BinaryCodec: ингредиенты, основы,
+// бортики и прайс-листы пишутся ссылками и при чтении ищутся в каталоге, а не копируются в каждый блок.
+// get() прозрачно читает блок с диска. Поднятые заказы — снимки оформленных заказов, изменить их нельзя.
+// Прочитанные блоки держатся через SoftReference: повторные запросы не распаковывают их заново,
+// а при нехватке памяти кеш освобождается. filter() и all() читают все блоки, поэтому запросы по времени
+// идут через scan(), а запросы только по живым заказам — через filterHot().
+// Номера блоков продолжают уже лежащие в каталоге файлы: чужой или прежний блок не перезаписывается.
+public class TieredOrderRepository implements CrudRepository<Order> {
+    private record Block(Path file, Instant from, Instant to) { }
+
+    private final Path dir;
+    private final Duration maxHotAge;
+    private final int blockSize;
+    private final Clock clock;
+
+    private final UuidMap<Order> hot = new UuidMap<>();
+    private final UuidMap<Block> cold = new UuidMap<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<Block, Integer> liveInBlock = new HashMap<>();
+    private long nextBlock = 0;
+    private final AtomicLong version = new AtomicLong();
+    private final Runnable bump = version::incrementAndGet;
+
+    private final Map<Block, SoftReference<List<Order>>> decoded = new HashMap<>();
+    private BinaryCodec.Catalog catalog;
+
+    public TieredOrderRepository(Path dir, Duration maxHotAge) {
+        this(dir, maxHotAge, 512, Clock.systemDefaultZone());
+    }
+
+    public TieredOrderRepository(Path dir, Duration maxHotAge, int blockSize, Clock clock) {
+        if (dir == null || maxHotAge == null || clock == null) throw new IllegalArgumentException("dir/maxHotAge/clock null");
+        if (maxHotAge.isNegative()) throw new IllegalArgumentException("Возраст не может быть отрицательным");
+        if (blockSize < 1) throw new IllegalArgumentException("Размер блока должен быть >= 1");
+        this.dir = dir;
+        this.maxHotAge = maxHotAge;
+        this.blockSize = blockSize;
+        this.clock = clock;
+        try {
+            Files.createDirectories(dir);
+            nextBlock = firstFreeBlock(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать каталог " + dir, e);
+        }
+    }
+
+    private static long firstFreeBlock(Path dir) throws IOException {
+        long next = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "orders-*.blk")) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                try {
+                    next = Math.max(next, Long.parseLong(name.substring("orders-".length(), name.length() - ".blk".length())) + 1);
+                } catch (NumberFormatException e) {
+                    // не наш файл — номер не занимает
+                }
+            }
+        }
+        return next;
+    }
+
+    // Каталог для чтения и записи блоков; без него выгрузка невозможна
+    public synchronized void setCatalog(BinaryCodec.Catalog catalog) {
+        if (catalog == null) throw new IllegalArgumentException("catalog null");
+        this.catalog = catalog;
+    }
+
+    public synchronized void add(Order obj) {
+        forgetCold(obj.getId());
+        Order old = hot.put(obj.getId(), obj);
+        if (old != null) old.unwatch(bump);
+        obj.watch(bump);
+        version.incrementAndGet();
+    }
+
+    public synchronized Order get(UUID id) {
+        Order o = hot.get(id);
+        if (o != null) return o;
+        Block b = cold.get(id);
+        if (b == null) return null;
+        for (Order x : readBlock(b)) if (x.getId().equals(id)) return x;
+        return null;
+    }
+
+    // Холодные заказы — снимки с диска, их изменения потерялись бы, поэтому обновлять можно только горячие
+    public long update(UUID id, long expectedVersion, Consumer<? super Order> mutation) {
+        if (mutation == null) throw new IllegalArgumentException("mutation null");
+        Order o;
+        synchronized (this) {
+            o = hot.get(id);
+            if (o == null && cold.containsKey(id)) throw new IllegalStateException("Заказ выгружен на диск, изменять его нельзя");
+        }
+        if (o == null) throw new IllegalArgumentException("Нет сущности с id=" + id);
+        return o.updateIfVersion(expectedVersion, () -> mutation.accept(o));
+    }
+
+    public synchronized void remove(UUID id) {
+        Order old = hot.remove(id);
+        if (old != null) old.unwatch(bump);
+        else forgetCold(id);
+        version.incrementAndGet();
+    }
+
+    // Выгрузка на диск тоже меняет версию: после неё get() отдаёт снимки, а не прежние объекты
+    public long version() { return version.get(); }
+
+    public synchronized List<Order> all() { return filter(o -> true); }
+
+    public synchronized List<Order> filter(Predicate<Order> predicate) {
+        List<Order> result = new ArrayList<>();
+        for (Order o : hot.values()) if (predicate.test(o)) result.add(o);
+        for (Block b : blocks) {
+            for (Order o : readBlock(b)) {
+                if (b.equals(cold.get(o.getId())) && predicate.test(o)) result.add(o);
+            }
+        }
+        return result;
+    }
+
+    // Только заказы в памяти; блоки на диске не читаются
+    public synchronized List<Order> filterHot(Predicate<Order> predicate) {
+        List<Order> result = new ArrayList<>();
+        for (Order o : hot.values()) if (predicate.test(o)) result.add(o);
+        return result;
+    }
+
+    // Заказы в [from, to): холодные блоки читаются последовательно, только пересекающиеся с диапазоном
+    public synchronized List<Order> scan(Instant from, Instant to) {
+        if (from == null || to == null) throw new IllegalArgumentException("from/to null");
+        List<Order> result = new ArrayList<>();
+        for (Block b : blocks) {
+            if (b.to().isBefore(from) || !b.from().isBefore(to)) continue;
+            for (Order o : readBlock(b)) {
+                if (inRange(o, from, to) && b.equals(cold.get(o.getId()))) result.add(o);
+            }
+        }
+        for (Order o : hot.values()) if (inRange(o, from, to)) result.add(o);
+        result.sort(Comparator.comparing(Order::getTime));
+        return result;
+    }
+
+    public synchronized int hotCount() { return hot.size(); }
+    public synchronized int coldCount() { return cold.size(); }
+
+    // Выгружает на диск оформленные заказы старше maxHotAge и возвращает их: владелец должен
+    // отцепить от них слушателей и резервы, иначе объекты останутся в памяти.
+    // Открытые заказы остаются горячими, пока их редактируют
+    public synchronized List<Order> evictCold() {
+        if (catalog == null) throw new IllegalStateException("Каталог для выгрузки не задан");
+        Instant cutoff = clock.instant().minus(maxHotAge);
+        List<Order> old = hot.values().stream()
+                .filter(o -> o.isPlaced() && o.getTime().isBefore(cutoff))
+                .sorted(Comparator.comparing(Order::getTime))
+                .toList();
+
+        for (int i = 0; i < old.size(); i += blockSize) {
+            List<Order> chunk = old.subList(i, Math.min(old.size(), i + blockSize));
+            Block b = writeBlock(chunk);
+            blocks.add(b);
+            liveInBlock.put(b, chunk.size());
+            for (Order o : chunk) {
+                hot.remove(o.getId());
+                o.unwatch(bump);
+                cold.put(o.getId(), b);
+            }
+        }
+        if (!old.isEmpty()) version.incrementAndGet();
+        return old;
+    }
+
+    private void forgetCold(UUID id) {
+        Block b = cold.remove(id);
+        if (b != null && liveInBlock.merge(b, -1, Integer::sum) == 0) dropBlock(b);
+    }
+
+    private static boolean inRange(Order o, Instant from, Instant to) {
+        return !o.getTime().isBefore(from) && o.getTime().isBefore(to);
+    }
+
+    private Block writeBlock(List<Order> chunk) {
+        Path file = dir.resolve("orders-" + (nextBlock++) + ".blk");
+        try (DataOutputStream out = new DataOutputStream(
+                new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(chunk.size());
+            for (Order o : chunk) {
+                ByteBuffer buf = BinaryCodec.encode(o);
+                out.writeInt(buf.remaining());
+                out.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать блок " + file, e);
+        }
+        return new Block(file, chunk.get(0).getTime(), chunk.get(chunk.size() - 1).getTime());
+    }
+
+    private List<Order> readBlock(Block b) {
+        SoftReference<List<Order>> ref = decoded.get(b);
+        List<Order> cached = ref == null ? null : ref.get();
+        if (cached != null) return cached;
+        try (DataInputStream in = new DataInputStream(
+                new GZIPInputStream(new BufferedInputStream(Files.newInputStream(b.file()))))) {
+            int n = in.readInt();
+            List<Order> orders = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                Order o = BinaryCodec.decode(ByteBuffer.wrap(bytes), catalog);
+                o.makeReadOnly();
+                orders.add(o);
+            }
+            decoded.put(b, new SoftReference<>(orders));
+            return orders;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать блок " + b.file(), e);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Повреждён блок " + b.file(), e);
+        }
+    }
+
+    private void dropBlock(Block b) {
+        blocks.remove(b);
+        liveInBlock.remove(b);
+        decoded.remove(b);
+        try {
+            Files.deleteIfExists(b.file());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить блок " + b.file(), e);
+        }
+    }
+}
@@ -1,57 +1,227 @@
 package service;
 
 import model.*;
+import perf.QueryEvent;
+import repo.CrudRepository;
+import repo.OrderArchive;
 import repo.Repository;
+import repo.TieredOrderRepository;
+import util.SpaceSaving;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
-public class App {
+public class App implements AutoCloseable {
     private final Repository<Ingredient> ingredientRepo = new Repository<>();
     private final Repository<Base> baseRepo = new Repository<>();
     private final Repository<Side> sideRepo = new Repository<>();
     private final Repository<Pizza> pizzaRepo = new Repository<>();
-    private final Repository<Order> orderRepo = new Repository<>();
+    private final CrudRepository<Order> orderRepo;
+    private final Repository.Index<Ingredient, String> ingredientNames = ingredientRepo.addIndex("название ингредиента", Entity::getName, false);
+    private final Repository.Index<Base, String> baseNames = baseRepo.addIndex("название основы", Entity::getName, false);
+    private final Repository.Index<Side, String> sideNames = sideRepo.addIndex("название бортика", Entity::getName, false);
+    private final Repository.Index<Pizza, String> pizzaNames = pizzaRepo.addIndex("название пиццы", Entity::getName, false);
+    private final Repository.Index<Pizza, Size> pizzaSizes = pizzaRepo.addIndex("размер пиццы", Pizza::getSize, false);
+    // Уникальный номер заказа; null, если заказы хранятся не в Repository
+    private final Repository.Index<Order, String> orderNumbers;
+    private final SalesAnalytics analytics = new SalesAnalytics();
+    private final Inventory inventory = new Inventory();
+    private final OrderEventPublisher orderEvents = new OrderEventPublisher();
+    private final BasePricing pricing;
+    private final OrderArchive archive = new OrderArchive();
+    private final PriceBook priceBook = new PriceBook();
+    private volatile MutationGuard rules = MutationGuard.NONE;
+    private volatile Promotions promotions = Promotions.NONE;
+    private final AtomicLong promotionsVersion = new AtomicLong();
+    private final QueryCache queryCache = new QueryCache(256);
+    private final OrderScheduler scheduler = new OrderScheduler();
+    private final CustomerRegistry customers = new CustomerRegistry();
+    private volatile PopularityTracker popularity = new PopularityTracker();
+    private final Map<UUID, Entity> retired = new ConcurrentHashMap<>();
+    private final PriceDependents dependents = new PriceDependents();
+
+    // Сущности получают этот guard один раз; замена правил подхватывается без обхода всех пицц и заказов
+    private final MutationGuard guard = new MutationGuard() {
+        public void checkIngredient(Pizza pizza, Slice slice, Ingredient ingredient, int multiplier) {
+            rules.checkIngredient(pizza, slice, ingredient, multiplier);
+        }
+        public void checkSide(Pizza pizza, Slice slice, Side side) { rules.checkSide(pizza, slice, side); }
+        // Пицца уже в заказе и держит резерв: добавка должна найтись на складе
+        public void checkIngredients(Pizza pizza, List<Slice> slices, Ingredient ingredient, int multiplier) {
+            rules.checkIngredients(pizza, slices, ingredient, multiplier);
+            if (inventory.isReserved(pizza.getId()))
+                inventory.checkAvailable(ingredient, (double) multiplier * pizza.getSize().getK() * slices.size());
+        }
+        public void checkSides(Pizza pizza, List<Slice> slices, Side side) {
+            rules.checkSides(pizza, slices, side);
+            if (!inventory.isReserved(pizza.getId())) return;
+            for (IngredientPortion ip : side.getIngredients())
+                inventory.checkAvailable(ip.ingredient(), (double) ip.multiplier() * pizza.getSize().getK() * slices.size());
+        }
+        public void checkBase(Pizza pizza, Base base) { rules.checkBase(pizza, base); }
+        public void checkGuests(Order order, int newGuestCount) { rules.checkGuests(order, newGuestCount); }
+        public void checkIngredientPrice(Ingredient ingredient, double price) { rules.checkIngredientPrice(ingredient, price); }
+        public void checkBasePrice(Base base, double price) { rules.checkBasePrice(base, price); }
+    };
+
+    // Заказы слушают этот объект, поэтому счётчик популярности можно заменить, не трогая заказы
+    private final OrderListener popularityView = (order, change) -> popularity.orderChanged(order, change);
+
+    // Так же и с акциями: заказы держат этот объект, смена набора акций меняет его версию
+    private final Promotions promotionsView = new Promotions() {
+        public double[] discounts(Order order, List<Pizza> pizzas, double[] prices) {
+            return promotions.discounts(order, pizzas, prices);
+        }
+        public long version() { return promotionsVersion.get(); }
+    };
+
+    public App() { this(BasePricing.DEFAULT); }
+
+    public App(BasePricing pricing) { this(pricing, new Repository<>()); }
+
+    public App(BasePricing pricing, CrudRepository<Order> orderRepo) {
+        if (pricing == null) throw new IllegalArgumentException("pricing null");
+        if (orderRepo == null) throw new IllegalArgumentException("orderRepo null");
+        this.pricing = pricing;
+        this.orderRepo = orderRepo;
+        this.orderNumbers = orderRepo instanceof Repository<Order> r ? r.addIndex("номер заказа", Entity::getName, true) : null;
+        if (orderRepo instanceof TieredOrderRepository tiered) tiered.setCatalog(catalog());
+    }
 
     public List<Ingredient> getAllIngredients() { return ingredientRepo.all(); }
     public List<Base> getAllBases() { return baseRepo.all(); }
     public List<Side> getAllSides() { return sideRepo.all(); }
     public List<Pizza> getAllPizzas() { return pizzaRepo.all(); }
     public List<Order> getAllOrders() { return orderRepo.all(); }
+    public Order getOrder(UUID id) { return orderRepo.get(id); }
+
+    // Справочная сущность заведена в этом App (пицца — в меню, не только в заказе)
+    public boolean owns(Entity e) {
+        if (e instanceof Ingredient) return ingredientRepo.get(e.getId()) != null;
+        if (e instanceof Base) return baseRepo.get(e.getId()) != null;
+        if (e instanceof Side) return sideRepo.get(e.getId()) != null;
+        if (e instanceof Pizza) return pizzaRepo.get(e.getId()) != null;
+        return false;
+    }
+
+    // --------- Поиск по индексам ---------
+
+    public List<Ingredient> findIngredients(String name) { return ingredientRepo.findBy(ingredientNames, name); }
+    public List<Base> findBases(String name) { return baseRepo.findBy(baseNames, name); }
+    public List<Side> findSides(String name) { return sideRepo.findBy(sideNames, name); }
+    public List<Pizza> findPizzas(String name) { return pizzaRepo.findBy(pizzaNames, name); }
+
+    public Order findOrder(String number) {
+        if (orderNumbers != null) return ((Repository<Order>) orderRepo).findOne(orderNumbers, number);
+        return orderRepo.filter(o -> o.getName().equals(number)).stream().findFirst().orElse(null);
+    }
+    public SalesAnalytics getAnalytics() { return analytics; }
+    public Inventory getInventory() { return inventory; }
+    public OrderEventPublisher getOrderEvents() { return orderEvents; }
+    public BasePricing getPricing() { return pricing; }
+    public OrderArchive getArchive() { return archive; }
+    public PriceBook getPriceBook() { return priceBook; }
+    public MutationGuard getRules() { return rules; }
+    public Promotions getPromotions() { return promotions; }
+    public QueryCache getQueryCache() { return queryCache; }
+    public OrderScheduler getScheduler() { return scheduler; }
+    public CustomerRegistry getCustomers() { return customers; }
+    public PopularityTracker getPopularity() { return popularity; }
+
+    // Кухня получает оформленные заказы к их времени. На колесо сразу встают черновики и оформленные
+    // заказы, чьё время ещё не наступило; уже отданные раньше заказы повторно не отправляются
+    public void startKitchen(Consumer<Order> kitchen) {
+        scheduler.setKitchen(kitchen);
+        Instant now = Instant.now();
+        for (Order o : liveOrders(o -> !o.isReadOnly() && (!o.isPlaced() || o.getTime().isAfter(now))))
+            scheduler.schedule(o);
+        scheduler.start();
+    }
+
+    @Override
+    public void close() { scheduler.close(); }
+
+    public void setRules(MutationGuard rules) {
+        if (rules == null) throw new IllegalArgumentException("rules null");
+        this.rules = rules;
+    }
+
+    public BusinessRules loadRules(Path file) {
+        BusinessRules r = BusinessRules.load(file);
+        setRules(r);
+        return r;
+    }
+
+    // Открытые заказы пересчитываются по новым акциям при следующем обращении; оформленные не меняются
+    public void setPromotions(Promotions promotions) {
+        if (promotions == null) throw new IllegalArgumentException("promotions null");
+        this.promotions = promotions;
+        promotionsVersion.incrementAndGet();
+    }
+
+    // Новый счётчик с ёмкостью под погрешность epsilon; подсчёт начинается заново
+    public void setPopularityError(double epsilon) { this.popularity = PopularityTracker.withError(epsilon); }
+
+    public PromotionEngine loadPromotions(Path file) {
+        PromotionEngine p = PromotionEngine.load(file);
+        setPromotions(p);
+        return p;
+    }
 
     public Ingredient createIngredient(String name, double price) {
         Ingredient i = new Ingredient(name, price);
+        guard.checkIngredientPrice(i, price);
         ingredientRepo.add(i);
+        publishPrices();
         return i;
     }
 
     public void updateIngredientPrice(UUID id, double newPrice) {
+        applyRepricing(new RepricingBatch().ingredient(id, newPrice));
+    }
+
+    public void deleteIngredient(UUID id) {
+        retire(ingredientRepo.get(id));
+        ingredientRepo.remove(id);
+        inventory.untrack(id);
+    }
+
+    public void setIngredientStock(UUID id, double portions) {
         Ingredient i = ingredientRepo.get(id);
         if (i == null) throw new IllegalArgumentException("Нет ингредиента с id=" + id);
-        i.setPrice(newPrice);
+        inventory.setStock(i, portions);
     }
 
-    public void deleteIngredient(UUID id) { ingredientRepo.remove(id); }
-
     public Base createClassicBase() {
-        Base b = new ClassicBase();
+        Base b = new ClassicBase(pricing);
         baseRepo.add(b);
+        publishPrices();
         return b;
     }
 
     public Base createNotClassicBase(String name, double price) {
-        Base b = new NotClassicBase(name, price);
+        Base b = new NotClassicBase(name, price, pricing);
+        guard.checkBasePrice(b, price);
         baseRepo.add(b);
+        publishPrices();
         return b;
     }
 
-    public void deleteBase(UUID id) { baseRepo.remove(id); }
+    public void deleteBase(UUID id) {
+        retire(baseRepo.get(id));
+        baseRepo.remove(id);
+    }
 
     public void updateBasePrice(UUID baseId, double newPrice) {
-        Base b = baseRepo.get(baseId);
-        if (b == null) throw new IllegalArgumentException("Нет основы с id=" + baseId);
-        b.setPrice(newPrice);
+        applyRepricing(new RepricingBatch().base(baseId, newPrice));
     }
 
     public Side createSide(String name) {
@@ -60,24 +230,323 @@ public class App {
         return s;
     }
 
-    public void deleteSide(UUID id) { sideRepo.remove(id); }
+    public void addIngredientToSide(Side side, Ingredient ingredient, int mult) {
+        if (side == null) throw new IllegalArgumentException("side null");
+        side.addIngredient(ingredient, mult);
+        publishPrices();
+    }
+
+    public void deleteSide(UUID id) {
+        retire(sideRepo.get(id));
+        sideRepo.remove(id);
+    }
+
+    // Удалённые из каталога сущности остаются доступны кодеку: на них ссылаются выгруженные заказы
+    private void retire(Entity e) {
+        if (e != null) retired.put(e.getId(), e);
+    }
 
     public Pizza createPizza(String name, Base base, Size size, Mode mode, Side side) {
-        Pizza p = new Pizza(name, base, size, mode, side);
+        Pizza p = guarded(new Pizza(name, base, size, mode, side));
         pizzaRepo.add(p);
+        dependents.track(p, null);
         return p;
     }
 
     public Pizza createPizzaForOrderOnly(String name, Base base, Size size, Mode mode, Side side) {
-        return new Pizza(name, base, size, mode, side);
+        return guarded(new Pizza(name, base, size, mode, side));
+    }
+
+    // Пицца может сразу получить бортик: он проверяется правилами, как если бы его поставили позже
+    private Pizza guarded(Pizza p) {
+        p.setGuard(guard);
+        if (p.getSide() != null) guard.checkSides(p, p.getSlices(), p.getSide());
+        return p;
     }
 
     public Order createOrder(String number) {
+        if (orderNumbers == null && findOrder(number) != null)
+            throw new IllegalArgumentException("Заказ с номером " + number + " уже есть");
         Order o = new Order(number);
+        o.setGuard(guard);
+        o.setPromotions(promotionsView);
         orderRepo.add(o);
+        o.addListener(analytics);
+        o.addListener(orderEvents);
+        o.addListener(scheduler);
+        o.addListener(customers);
+        o.addListener(popularityView);
+        if (scheduler.hasKitchen()) scheduler.schedule(o);
+        orderEvents.publish(OrderEvent.of(o, OrderChange.CREATED));
         return o;
     }
 
+    // --------- Гости ---------
+
+    // Один и тот же постоянный гость во всех заказах — по имени без учёта регистра
+    public Person customer(String name) { return customers.intern(name); }
+
+    public Person findCustomer(String name) { return customers.find(name); }
+
+    // Заказы гостя, ещё не ушедшие в архив, в порядке появления гостя в них
+    public List<Order> ordersOf(Person customer) {
+        List<Order> result = new ArrayList<>();
+        for (UUID id : customers.ordersOf(customer)) {
+            Order o = orderRepo.get(id);
+            if (o != null) result.add(o);
+        }
+        return result;
+    }
+
+    public List<CustomerRegistry.PizzaCount> favouritePizzas(Person customer, int limit) {
+        return customers.favouritePizzas(customer, limit);
+    }
+
+    // --------- Популярное ---------
+
+    public List<SpaceSaving.Entry<PopularityTracker.Config>> topPizzas(int n) { return popularity.topPizzas(n); }
+
+    // Удалённые из каталога позиции пропускаются
+    public List<SpaceSaving.Entry<Ingredient>> topIngredients(int n) { return resolve(popularity.topIngredients(n), ingredientRepo); }
+    public List<SpaceSaving.Entry<Side>> topSides(int n) { return resolve(popularity.topSides(n), sideRepo); }
+
+    private static <T extends Entity> List<SpaceSaving.Entry<T>> resolve(List<SpaceSaving.Entry<UUID>> top, CrudRepository<T> repo) {
+        List<SpaceSaving.Entry<T>> result = new ArrayList<>(top.size());
+        for (SpaceSaving.Entry<UUID> e : top) {
+            T x = repo.get(e.key());
+            if (x != null) result.add(new SpaceSaving.Entry<>(x, e.count(), e.error()));
+        }
+        return result;
+    }
+
+    // --------- Оптимистичные правки ---------
+
+    // Правка применяется, только если заказ не менялся с версии expectedVersion (Entity.getVersion);
+    // иначе OptimisticLockException — вызывающий перечитывает заказ и повторяет. Возвращает новую версию
+    public long updateOrder(UUID orderId, long expectedVersion, Consumer<Order> edit) {
+        return orderRepo.update(orderId, expectedVersion, edit);
+    }
+
+    public long updatePizza(UUID pizzaId, long expectedVersion, Consumer<Pizza> edit) {
+        return pizzaRepo.update(pizzaId, expectedVersion, edit);
+    }
+
+    // --------- Прайс-листы ---------
+
+    public PriceList publishPrices() {
+        synchronized (priceBook) {
+            Map<UUID, Double> ingredients = new HashMap<>();
+            for (Ingredient i : ingredientRepo.all()) ingredients.put(i.getId(), i.getPrice());
+            Map<UUID, Double> bases = new HashMap<>();
+            for (Base b : baseRepo.all()) bases.put(b.getId(), b.getPrice());
+            Map<UUID, Double> sides = new HashMap<>();
+            for (Side s : sideRepo.all()) sides.put(s.getId(), s.getPrice());
+            return priceBook.publish(ingredients, bases, sides);
+        }
+    }
+
+    // --------- Пакетная переоценка ---------
+
+    // Проверяет весь пакет (включая лимит 20% для всех неклассических основ при новой классической цене),
+    // применяет его целиком, публикует одну версию прайс-листа и один раз уведомляет затронутые открытые заказы
+    public RepricingBatch.Result applyRepricing(RepricingBatch batch) {
+        if (batch == null) throw new IllegalArgumentException("batch null");
+        synchronized (priceBook) {
+            List<String> errors = new ArrayList<>();
+            Map<Ingredient, Double> ingredientPrices = new LinkedHashMap<>();
+            Map<Base, Double> basePrices = new LinkedHashMap<>();
+            Double classic = batch.classicPrice();
+
+            for (var e : batch.ingredients().entrySet()) {
+                Ingredient i = ingredientRepo.get(e.getKey());
+                if (i == null) errors.add("Нет ингредиента с id=" + e.getKey());
+                else if (e.getValue() < 0) errors.add("Цена не может быть отрицательной: " + i.getName());
+                else if (!violates(() -> guard.checkIngredientPrice(i, e.getValue()), errors)) ingredientPrices.put(i, e.getValue());
+            }
+            for (var e : batch.bases().entrySet()) {
+                Base b = baseRepo.get(e.getKey());
+                if (b == null) {
+                    errors.add("Нет основы с id=" + e.getKey());
+                } else if (violates(() -> guard.checkBasePrice(b, e.getValue()), errors)) {
+                    continue;
+                } else if (b instanceof ClassicBase) {
+                    if (classic != null && !classic.equals(e.getValue())) errors.add("Противоречивые цены классической основы");
+                    classic = e.getValue();
+                } else {
+                    basePrices.put(b, e.getValue());
+                }
+            }
+
+            // Цена классической основы через classicBase() проверяется теми же правилами, что и цены основ
+            if (batch.classicPrice() != null) {
+                double price = batch.classicPrice();
+                for (Base b : baseRepo.all()) {
+                    if (b instanceof ClassicBase && !batch.bases().containsKey(b.getId()))
+                        violates(() -> guard.checkBasePrice(b, price), errors);
+                }
+            }
+
+            double newClassic = classic != null ? classic : pricing.getClassicPrice();
+            if (newClassic <= 0) errors.add("Цена основы должна быть > 0");
+            double maxPrice = newClassic * 1.2;
+            for (Base b : baseRepo.all()) {
+                if (!(b instanceof NotClassicBase)) continue;
+                double price = basePrices.getOrDefault(b, b.getPrice());
+                if (price <= 0) errors.add("Цена основы должна быть > 0: " + b.getName());
+                else if (price > maxPrice) errors.add(String.format(
+                        "%s: стоимость не должна превышать %.2f руб. (20%% от классической)", b.getName(), maxPrice));
+            }
+            if (!errors.isEmpty()) throw new IllegalArgumentException(String.join("; ", errors));
+
+            Set<UUID> changed = new HashSet<>();
+            if (classic != null) {
+                pricing.setClassicPrice(newClassic);
+                for (Base b : baseRepo.all()) {
+                    if (b instanceof ClassicBase) {
+                        b.setPrice(newClassic);
+                        changed.add(b.getId());
+                    }
+                }
+            }
+            basePrices.forEach((b, price) -> {
+                b.setPrice(price);
+                changed.add(b.getId());
+            });
+            ingredientPrices.forEach((i, price) -> {
+                i.setPrice(price);
+                changed.add(i.getId());
+            });
+
+            PriceList prices = publishPrices();
+            if (changed.isEmpty()) return new RepricingBatch.Result(prices, List.of(), List.of());
+
+            // Бортик дорожает вместе со своими ингредиентами
+            Set<UUID> keys = new HashSet<>(changed);
+            for (Side sd : sideRepo.all()) {
+                for (IngredientPortion ip : sd.getIngredients()) if (changed.contains(ip.ingredient().getId())) keys.add(sd.getId());
+            }
+            List<Pizza> pizzas = dependents.menuPizzas(keys);
+            List<Order> orders = dependents.orders(keys);
+            orders.removeIf(Order::isPlaced);
+            for (Order o : orders) o.pricesChanged();
+            return new RepricingBatch.Result(prices, pizzas, orders);
+        }
+    }
+
+    private static boolean violates(Runnable check, List<String> errors) {
+        try {
+            check.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            errors.add(e.getMessage());
+            return true;
+        }
+    }
+
+    // --------- Двоичный формат ---------
+
+    // Каталог этого приложения для декодирования: ингредиенты, основы и бортики ищутся по id
+    public BinaryCodec.Catalog catalog() {
+        return new BinaryCodec.Catalog() {
+            public Ingredient ingredient(UUID id) {
+                Ingredient i = ingredientRepo.get(id);
+                return i != null ? i : retired.get(id) instanceof Ingredient r ? r : null;
+            }
+            public Base base(UUID id) {
+                Base b = baseRepo.get(id);
+                return b != null ? b : retired.get(id) instanceof Base r ? r : null;
+            }
+            public Side side(UUID id) {
+                Side sd = sideRepo.get(id);
+                return sd != null ? sd : retired.get(id) instanceof Side r ? r : null;
+            }
+            public PriceList priceList(long version) { return priceBook.version(version); }
+        };
+    }
+
+    public ByteBuffer encodeOrder(Order order) {
+        if (order == null) throw new IllegalArgumentException("order null");
+        return BinaryCodec.encode(order);
+    }
+
+    // Декодированный заказ не добавляется в репозиторий
+    public Order decodeOrder(ByteBuffer buf) {
+        if (buf == null) throw new IllegalArgumentException("buf null");
+        return BinaryCodec.decode(buf, catalog());
+    }
+
+    // Оформление фиксирует текущую версию прайс-листа; итоги заказа после этого не меняются
+    public void placeOrder(Order order) {
+        if (order == null) throw new IllegalArgumentException("order null");
+        order.place(priceBook.current());
+        for (Pizza p : allPizzasOf(order)) dependents.untrack(p, order);
+    }
+
+    // --------- Пиццы в заказе (с резервом склада) ---------
+
+    public void addPizzaToOrder(Order order, Pizza pizza) {
+        inventory.reserve(pizza);
+        try {
+            order.addPizza(pizza);
+            dependents.track(pizza, order);
+        } catch (RuntimeException e) {
+            inventory.release(pizza);
+            throw e;
+        }
+    }
+
+    public void addCustomPizzaToOrder(Order order, Pizza pizza) {
+        inventory.reserve(pizza);
+        try {
+            order.addCustomPizza(pizza);
+            dependents.track(pizza, order);
+        } catch (RuntimeException e) {
+            inventory.release(pizza);
+            throw e;
+        }
+    }
+
+    public void removePizzaFromOrder(Order order, Pizza pizza) {
+        order.removeAnyPizza(pizza);
+        inventory.release(pizza);
+        dependents.untrack(pizza, order);
+    }
+
+    // Смена размера сбрасывает начинку, поэтому резерв пересчитывается заново
+    public void resizeOrderPizza(Order order, Pizza pizza, Size size) {
+        if (order == null || pizza == null) throw new IllegalArgumentException("order/pizza null");
+        if (order.isPlaced() || pizza.isFrozen()) throw new IllegalStateException("Заказ уже оформлен, состав менять нельзя");
+        if (!allPizzasOf(order).contains(pizza)) throw new IllegalArgumentException("Этой пиццы нет в заказе");
+        inventory.release(pizza);
+        pizza.setSize(size);
+        inventory.reserve(pizza);
+    }
+
+    // Для многоуровневого хранилища выгружает старые заказы на диск
+    public int evictColdOrders() {
+        if (!(orderRepo instanceof TieredOrderRepository tiered)) return 0;
+        List<Order> evicted = tiered.evictCold();
+        for (Order o : evicted) detach(o);
+        return evicted.size();
+    }
+
+    // Заказ больше не живёт в памяти: снимаются слушатели, планировщик, слежение аналитики и реестра
+    // гостей, резерв его пицц списывается со склада. Продажи в окнах аналитики и история гостей сохраняются
+    private void detach(Order o) {
+        o.removeListener(analytics);
+        o.removeListener(orderEvents);
+        o.removeListener(scheduler);
+        o.removeListener(customers);
+        o.removeListener(popularityView);
+        scheduler.cancel(o.getId());
+        analytics.detach(o.getId());
+        customers.forget(o.getId());
+        for (Pizza p : allPizzasOf(o)) {
+            inventory.consume(p);
+            dependents.untrack(p, o);
+        }
+    }
+
     public void seedDefaults() {
         Ingredient cheese = createIngredient("Сыр", 30);
         Ingredient tomato = createIngredient("Томаты", 20);
@@ -88,10 +557,10 @@ public class App {
         createNotClassicBase("Черная", 120);
 
         Side cheeseSide = createSide("Сырный");
-        cheeseSide.addIngredient(cheese, 2);
+        addIngredientToSide(cheeseSide, cheese, 2);
 
         Side sausageSide = createSide("Колбасный");
-        sausageSide.addIngredient(sausage, 1);
+        addIngredientToSide(sausageSide, sausage, 1);
 
         Pizza cheesePizza = createPizza("Сырная", classic, Size.MEDIUM, Mode.BASIC, null);
         cheesePizza.addIngredientsBasic(cheese, 2);
@@ -129,32 +598,34 @@ public class App {
     }
 
     // --------- Фильтры пицц ---------
+    // Каждый фильтр пишет JFR-событие pizza.Query (см. perf/pizza.jfc); выключенное событие почти бесплатно
 
     public List<Pizza> pizzasWithIngredient(Ingredient ingredient) {
         if (ingredient == null) throw new IllegalArgumentException("ingredient null");
         UUID ingrId = ingredient.getId();
-        return pizzaRepo.filter(p ->
+        return QueryEvent.record("pizzasWithIngredient", () -> pizzaRepo.filter(p ->
                 p.getSlices().stream().anyMatch(sl ->
                         sl.getIngredients().stream().anyMatch(ip ->
                                 ip.ingredient().getId().equals(ingrId)
                         )
                 )
-        );
+        ));
     }
 
     public List<Pizza> pizzasByBase(Base base) {
         if (base == null) throw new IllegalArgumentException("base null");
-        return pizzaRepo.filter(p -> p.getBase().getId().equals(base.getId()));
+        return QueryEvent.record("pizzasByBase", () -> pizzaRepo.filter(p -> p.getBase().getId().equals(base.getId())));
     }
 
     public List<Pizza> pizzasBySize(Size size) {
         if (size == null) throw new IllegalArgumentException("size null");
-        return pizzaRepo.filter(p -> p.getSize() == size);
+        return QueryEvent.record("pizzasBySize", () -> queryCache.get("pizzasBySize", List.of(size), pizzaRepo.version(),
+                () -> pizzaRepo.findBy(pizzaSizes, size)));
     }
 
     public List<Pizza> pizzasByMode(Mode mode) {
         if (mode == null) throw new IllegalArgumentException("mode null");
-        return pizzaRepo.filter(p -> p.getMode() == mode);
+        return QueryEvent.record("pizzasByMode", () -> pizzaRepo.filter(p -> p.getMode() == mode));
     }
 
     // --------- Фильтры заказов ---------
@@ -167,25 +638,41 @@ public class App {
     }
 
     public List<Order> ordersMoreThan(double minTotal) {
-        return orderRepo.filter(o -> o.getTotalPrice() > minTotal);
+        return QueryEvent.record("ordersMoreThan", () -> orderRepo.filter(o -> o.getTotalPrice() > minTotal));
     }
 
     public List<Order> ordersAtDay(LocalDate day, ZoneId zone) {
-        return orderRepo.filter(o -> o.getTime().atZone(zone).toLocalDate().equals(day));
+        if (day == null || zone == null) throw new IllegalArgumentException("day/zone null");
+        return QueryEvent.record("ordersAtDay", () -> queryCache.get("ordersAtDay", List.of(day, zone), orderRepo.version(),
+                () -> ordersBetween(day.atStartOfDay(zone).toInstant(), day.plusDays(1).atStartOfDay(zone).toInstant())));
+    }
+
+    // Заказы в [from, to) по времени; у многоуровневого хранилища читаются только блоки из диапазона
+    private List<Order> ordersBetween(Instant from, Instant to) {
+        if (orderRepo instanceof TieredOrderRepository tiered) return tiered.scan(from, to);
+        return orderRepo.filter(o -> !o.getTime().isBefore(from) && o.getTime().isBefore(to));
+    }
+
+    // Заказы в памяти: холодные снимки на диске не меняются и здесь не нужны
+    private List<Order> liveOrders(Predicate<Order> predicate) {
+        if (orderRepo instanceof TieredOrderRepository tiered) return tiered.filterHot(predicate);
+        return orderRepo.filter(predicate);
     }
 
     public List<Order> ordersWithPizza(Pizza pizza) {
         if (pizza == null) throw new IllegalArgumentException("pizza null");
-        return orderRepo.filter(o ->
-                allPizzasOf(o).stream().anyMatch(p -> p.getId().equals(pizza.getId()))
-        );
+        return QueryEvent.record("ordersWithPizza", () -> queryCache.get("ordersWithPizza", List.of(pizza.getId()), orderRepo.version(), () ->
+                orderRepo.filter(o ->
+                        allPizzasOf(o).stream().anyMatch(p -> p.getId().equals(pizza.getId()))
+                )
+        ));
     }
 
     public List<Order> ordersWithIngredient(Ingredient ingredient) {
         if (ingredient == null) throw new IllegalArgumentException("ingredient null");
         UUID ingrId = ingredient.getId();
 
-        return orderRepo.filter(o ->
+        return QueryEvent.record("ordersWithIngredient", () -> orderRepo.filter(o ->
                 allPizzasOf(o).stream().anyMatch(p ->
                         p.getSlices().stream().anyMatch(sl ->
                                 sl.getIngredients().stream().anyMatch(ip ->
@@ -193,10 +680,46 @@ public class App {
                                 )
                         )
                 )
-        );
+        ));
     }
 
     public List<Order> ordersWithMinGuests(int n) {
-        return orderRepo.filter(o -> o.getGuests().size() >= n);
+        return QueryEvent.record("ordersWithMinGuests", () -> queryCache.get("ordersWithMinGuests", List.of(n), orderRepo.version(),
+                () -> orderRepo.filter(o -> o.getGuests().size() >= n)));
+    }
+
+    // --------- Архив закрытых заказов ---------
+
+    // Оформленные заказы со временем раньше cutoff переносятся в колоночный архив и удаляются
+    // из репозитория; открытые остаются, даже если их время прошло
+    public int archiveOrdersBefore(Instant cutoff) {
+        if (cutoff == null) throw new IllegalArgumentException("cutoff null");
+        List<Order> closed = orderRepo.filter(o -> o.isPlaced() && o.getTime().isBefore(cutoff));
+        for (Order o : closed) {
+            archive.append(o);
+            orderRepo.remove(o.getId());
+            detach(o);
+        }
+        return closed.size();
+    }
+
+    public List<UUID> archivedOrdersMoreThan(double minTotal) { return archive.ordersMoreThan(minTotal); }
+
+    public List<UUID> archivedOrdersAtDay(LocalDate day, ZoneId zone) {
+        Instant from = day.atStartOfDay(zone).toInstant();
+        Instant to = day.plusDays(1).atStartOfDay(zone).toInstant();
+        return archive.ordersBetween(from, to);
     }
+
+    public List<UUID> archivedOrdersWithPizza(Pizza pizza) {
+        if (pizza == null) throw new IllegalArgumentException("pizza null");
+        return archive.ordersWithPizza(pizza);
+    }
+
+    public List<UUID> archivedOrdersWithIngredient(Ingredient ingredient) {
+        if (ingredient == null) throw new IllegalArgumentException("ingredient null");
+        return archive.ordersWithIngredient(ingredient.getId());
+    }
+
+    public List<UUID> archivedOrdersWithMinGuests(int n) { return archive.ordersWithMinGuests(n); }
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+package service;
+
+import model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Бизнес-правила из конфигурационного файла. Строки вида:
+//   max-toppings-per-slice = 4
+//   max-guests = 10
+//   max-price ingredient = 200
+//   max-price base = 150
+//   ban ingredient "Ананас" with ingredient "Колбаски"
+//   ban ingredient "Острый перец" with size SMALL
+//   ban ingredient "Сыр" with base "Черная"
+//   ban side "Сырный" with base "Тонкая"
+// Правила компилируются в короткие цепочки проверок по виду изменения: в цепочку попадают
+// только реально заданные правила, баны ищутся по хеш-таблицам имён. Имена сущностей сравниваются
+// по Entity.nameKey(), который считается один раз на сущность, а не на каждую проверку.
+public final class BusinessRules implements MutationGuard {
+    @FunctionalInterface
+    private interface IngredientRule { void check(Pizza pizza, Slice slice, Ingredient ingredient, int multiplier); }
+
+    @FunctionalInterface
+    private interface SideRule { void check(Pizza pizza, Slice slice, Side side); }
+
+    @FunctionalInterface
+    private interface BaseRule { void check(Pizza pizza, Base base); }
+
+    @FunctionalInterface
+    private interface PriceRule { void check(String name, double price); }
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+    private final IngredientRule[] ingredientRules;
+    private final SideRule[] sideRules;
+    private final BaseRule[] baseRules;
+    private final PriceRule[] ingredientPriceRules;
+    private final PriceRule[] basePriceRules;
+    private final int maxGuests;
+
+    private BusinessRules(Builder b) {
+        List<IngredientRule> ingr = new ArrayList<>();
+        List<SideRule> side = new ArrayList<>();
+        List<BaseRule> base = new ArrayList<>();
+        List<PriceRule> ingrPrice = new ArrayList<>();
+        List<PriceRule> basePrice = new ArrayList<>();
+
+        if (b.maxToppings > 0) {
+            int max = b.maxToppings;
+            ingr.add((p, s, i, m) -> {
+                if (s.getIngredients().size() >= max)
+                    throw new IllegalArgumentException("На куске не может быть больше " + max + " ингредиентов");
+            });
+        }
+        if (!b.ingredientPairs.isEmpty()) {
+            Map<String, Set<String>> pairs = Map.copyOf(b.ingredientPairs);
+            ingr.add((p, s, i, m) -> {
+                Set<String> banned = pairs.get(i.nameKey());
+                if (banned == null) return;
+                for (IngredientPortion ip : s.getIngredients()) {
+                    if (banned.contains(ip.ingredient().nameKey()))
+                        throw new IllegalArgumentException("Нельзя сочетать " + i.getName() + " и " + ip.ingredient().getName());
+                }
+            });
+        }
+        if (!b.ingredientSizes.isEmpty()) {
+            Map<String, EnumSet<Size>> sizes = Map.copyOf(b.ingredientSizes);
+            ingr.add((p, s, i, m) -> {
+                EnumSet<Size> banned = sizes.get(i.nameKey());
+                if (banned != null && banned.contains(p.getSize()))
+                    throw new IllegalArgumentException(i.getName() + " нельзя добавлять в пиццу размера " + p.getSize().getName());
+            });
+        }
+        if (!b.ingredientBases.isEmpty()) {
+            Map<String, Set<String>> bases = Map.copyOf(b.ingredientBases);
+            ingr.add((p, s, i, m) -> {
+                Set<String> banned = bases.get(i.nameKey());
+                if (banned != null && banned.contains(p.getBase().nameKey()))
+                    throw new IllegalArgumentException(i.getName() + " нельзя добавлять на основу " + p.getBase().getName());
+            });
+            base.add((p, nb) -> {
+                for (Slice s : p.getSlices()) {
+                    for (IngredientPortion ip : s.getIngredients()) {
+                        Set<String> banned = bases.get(ip.ingredient().nameKey());
+                        if (banned != null && banned.contains(nb.nameKey()))
+                            throw new IllegalArgumentException(ip.ingredient().getName() + " нельзя добавлять на основу " + nb.getName());
+                    }
+                }
+            });
+        }
+        if (!b.sideBases.isEmpty()) {
+            Map<String, Set<String>> bases = Map.copyOf(b.sideBases);
+            side.add((p, s, sd) -> {
+                Set<String> banned = bases.get(sd.nameKey());
+                if (banned != null && banned.contains(p.getBase().nameKey()))
+                    throw new IllegalArgumentException("Борт " + sd.getName() + " нельзя ставить на основу " + p.getBase().getName());
+            });
+            base.add((p, nb) -> {
+                for (Slice s : p.getSlices()) {
+                    Side sd = s.getSide();
+                    Set<String> banned = sd == null ? null : bases.get(sd.nameKey());
+                    if (banned != null && banned.contains(nb.nameKey()))
+                        throw new IllegalArgumentException("Борт " + sd.getName() + " нельзя ставить на основу " + nb.getName());
+                }
+            });
+        }
+        if (b.maxIngredientPrice >= 0) ingrPrice.add(priceCap("ингредиента", b.maxIngredientPrice));
+        if (b.maxBasePrice >= 0) basePrice.add(priceCap("основы", b.maxBasePrice));
+
+        this.ingredientRules = ingr.toArray(new IngredientRule[0]);
+        this.sideRules = side.toArray(new SideRule[0]);
+        this.baseRules = base.toArray(new BaseRule[0]);
+        this.ingredientPriceRules = ingrPrice.toArray(new PriceRule[0]);
+        this.basePriceRules = basePrice.toArray(new PriceRule[0]);
+        this.maxGuests = b.maxGuests;
+    }
+
+    private static PriceRule priceCap(String what, double max) {
+        return (name, price) -> {
+            if (price > max)
+                throw new IllegalArgumentException(String.format("Цена %s %s не должна превышать %.2f руб.", what, name, max));
+        };
+    }
+
+    private static String key(String name) { return name.trim().toLowerCase(Locale.ROOT); }
+
+    // --------- Проверки ---------
+
+    @Override
+    public void checkIngredient(Pizza pizza, Slice slice, Ingredient ingredient, int multiplier) {
+        for (IngredientRule r : ingredientRules) r.check(pizza, slice, ingredient, multiplier);
+    }
+
+    @Override
+    public void checkSide(Pizza pizza, Slice slice, Side side) {
+        MutationGuard.super.checkSide(pizza, slice, side);
+        for (SideRule r : sideRules) r.check(pizza, slice, side);
+    }
+
+    @Override
+    public void checkBase(Pizza pizza, Base base) {
+        for (BaseRule r : baseRules) r.check(pizza, base);
+    }
+
+    @Override
+    public void checkGuests(Order order, int newGuestCount) {
+        if (maxGuests > 0 && newGuestCount > maxGuests)
+            throw new IllegalArgumentException("В заказе не может быть больше " + maxGuests + " гостей");
+    }
+
+    @Override
+    public void checkIngredientPrice(Ingredient ingredient, double price) {
+        for (PriceRule r : ingredientPriceRules) r.check(ingredient.getName(), price);
+    }
+
+    @Override
+    public void checkBasePrice(Base base, double price) {
+        for (PriceRule r : basePriceRules) r.check(base.getName(), price);
+    }
+
+    public int ruleCount() {
+        return ingredientRules.length + sideRules.length + baseRules.length
+                + ingredientPriceRules.length + basePriceRules.length + (maxGuests > 0 ? 1 : 0);
+    }
+
+    // --------- Загрузка ---------
+
+    public static BusinessRules load(Path file) {
+        if (file == null) throw new IllegalArgumentException("file null");
+        try {
+            return parse(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать правила " + file, e);
+        }
+    }
+
+    // Пустые строки и строки с # пропускаются; ошибка в любой строке отменяет загрузку целиком
+    public static BusinessRules parse(String text) {
+        if (text == null) throw new IllegalArgumentException("text null");
+        Builder b = new Builder();
+        String[] lines = text.split("\\R");
+        for (int n = 0; n < lines.length; n++) {
+            List<String> t = tokenize(lines[n]);
+            if (t.isEmpty() || t.get(0).startsWith("#")) continue;
+            try {
+                b.apply(t);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Правила, строка " + (n + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new BusinessRules(b);
+    }
+
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = TOKEN.matcher(line);
+        while (m.find()) tokens.add(m.group(1) != null ? m.group(1) : m.group(2));
+        return tokens;
+    }
+
+    private static final class Builder {
+        int maxToppings = 0;
+        int maxGuests = 0;
+        double maxIngredientPrice = -1;
+        double maxBasePrice = -1;
+        final Map<String, Set<String>> ingredientPairs = new HashMap<>();
+        final Map<String, EnumSet<Size>> ingredientSizes = new HashMap<>();
+        final Map<String, Set<String>> ingredientBases = new HashMap<>();
+        final Map<String, Set<String>> sideBases = new HashMap<>();
+
+        void apply(List<String> t) {
+            switch (t.get(0)) {
+                case "max-toppings-per-slice" -> maxToppings = positiveInt(value(t, 1));
+                case "max-guests" -> maxGuests = positiveInt(value(t, 1));
+                case "max-price" -> {
+                    double v = price(value(t, 2));
+                    switch (t.get(1)) {
+                        case "ingredient" -> maxIngredientPrice = v;
+                        case "base" -> maxBasePrice = v;
+                        default -> throw new IllegalArgumentException("max-price: ожидается ingredient или base");
+                    }
+                }
+                case "ban" -> ban(t);
+                default -> throw new IllegalArgumentException("Неизвестное правило: " + t.get(0));
+            }
+        }
+
+        // ban <ingredient|side> "имя" with <ingredient|base|size> значение
+        void ban(List<String> t) {
+            if (t.size() != 6 || !"with".equals(t.get(3)))
+                throw new IllegalArgumentException("Ожидается: ban <что> \"имя\" with <с чем> значение");
+            String a = key(t.get(2)), b = t.get(5);
+            String pair = t.get(1) + " " + t.get(4);
+            switch (pair) {
+                case "ingredient ingredient" -> {
+                    ingredientPairs.computeIfAbsent(a, k -> new HashSet<>()).add(key(b));
+                    ingredientPairs.computeIfAbsent(key(b), k -> new HashSet<>()).add(a);
+                }
+                case "ingredient size" -> {
+                    Size size;
+                    try {
+                        size = Size.valueOf(b.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Неизвестный размер: " + b);
+                    }
+                    ingredientSizes.computeIfAbsent(a, k -> EnumSet.noneOf(Size.class)).add(size);
+                }
+                case "ingredient base" -> ingredientBases.computeIfAbsent(a, k -> new HashSet<>()).add(key(b));
+                case "side base" -> sideBases.computeIfAbsent(a, k -> new HashSet<>()).add(key(b));
+                default -> throw new IllegalArgumentException("Неподдерживаемый запрет: " + pair);
+            }
+        }
+
+        private static String value(List<String> t, int at) {
+            if (t.size() == at + 2 && "=".equals(t.get(at))) return t.get(at + 1);
+            throw new IllegalArgumentException("Ожидается: " + String.join(" ", t.subList(0, Math.min(at, t.size()))) + " = значение");
+        }
+
+        private static int positiveInt(String s) {
+            try {
+                int v = Integer.parseInt(s);
+                if (v < 1) throw new IllegalArgumentException("Значение должно быть >= 1");
+                return v;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Не число: " + s);
+            }
+        }
+
+        private static double price(String s) {
+            try {
+                double v = Double.parseDouble(s.replace(',', '.'));
+                if (v < 0) throw new IllegalArgumentException("Цена не может быть отрицательной");
+                return v;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Не число: " + s);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package service;
+
+import model.*;
+
+import java.util.*;
+
+// Реестр постоянных гостей. Гость с тем же ключом (имя без учёта регистра и лишних пробелов)
+// всегда один и тот же объект Person, поэтому его заказы и съеденные пиццы можно собрать в индекс.
+// Индекс обновляется по событиям заказа: старый вклад заказа вычитается, новый добавляется.
+// Гости, созданные в обход реестра, в индекс не попадают.
+// Вклад оформленного заказа больше не меняется. Когда заказов в индексе больше maxOrders, самые старые
+// оформленные заказы остаются в истории гостей насовсем, а их вклад больше не хранится. Так же поступает
+// forget (архив, выгрузка на диск): история гостя не зависит от того, когда заказ ушёл из памяти.
+public class CustomerRegistry implements OrderListener {
+    public record PizzaCount(String name, int count) { }
+
+    // Вклад одного заказа: его гости из реестра и съеденные ими пиццы (ключ имени пиццы -> штук)
+    private record Contribution(Set<UUID> guests, Map<UUID, Map<String, Integer>> eaten) { }
+
+    private static final class History {
+        final Person person;
+        String key;
+        final Set<UUID> orders = new LinkedHashSet<>();
+        final Map<String, Integer> pizzas = new HashMap<>();
+        final Map<String, String> pizzaNames = new HashMap<>();
+
+        History(Person person, String key) {
+            this.person = person;
+            this.key = key;
+        }
+    }
+
+    private final Map<String, History> byKey = new HashMap<>();
+    private final Map<UUID, History> byId = new HashMap<>();
+    private final Map<UUID, Contribution> byOrder = new HashMap<>();
+    // Оформленные заказы из byOrder в порядке оформления — кандидаты на вытеснение
+    private final Set<UUID> placed = new LinkedHashSet<>();
+    private final int maxOrders;
+
+    public CustomerRegistry() { this(10_000); }
+
+    public CustomerRegistry(int maxOrders) {
+        if (maxOrders < 1) throw new IllegalArgumentException("maxOrders должен быть >= 1");
+        this.maxOrders = maxOrders;
+    }
+
+    public static String key(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // Возвращает зарегистрированного гостя с таким ключом или регистрирует нового
+    public synchronized Person intern(String name) {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("Имя гостя не может быть пустым");
+        String k = key(name);
+        History h = byKey.get(k);
+        if (h != null) return h.person;
+        Person p = new Person(name.trim());
+        register(p, k);
+        return p;
+    }
+
+    private void register(Person p, String k) {
+        History h = new History(p, k);
+        byKey.put(k, h);
+        byId.put(p.getId(), h);
+        p.watch(() -> renamed(h));
+    }
+
+    private synchronized void renamed(History h) {
+        String k = key(h.person.getName());
+        if (k.equals(h.key)) return;
+        if (byKey.get(h.key) == h) byKey.remove(h.key);
+        h.key = k;
+        byKey.putIfAbsent(k, h);
+    }
+
+    public synchronized Person find(String name) {
+        if (name == null) return null;
+        History h = byKey.get(key(name));
+        return h == null ? null : h.person;
+    }
+
+    public synchronized boolean isRegistered(Person person) { return person != null && byId.containsKey(person.getId()); }
+    public synchronized int size() { return byId.size(); }
+
+    public synchronized List<Person> all() {
+        List<Person> result = new ArrayList<>(byId.size());
+        for (History h : byId.values()) result.add(h.person);
+        return result;
+    }
+
+    // --------- Индекс ---------
+
+    @Override
+    public void orderChanged(Order order, OrderChange change) {
+        switch (change) {
+            case CREATED, GUEST_ADDED, GUEST_REMOVED, EATERS_CHANGED, PIZZA_ADDED, PIZZA_REMOVED, PIZZA_CHANGED -> record(order);
+            case PLACED -> placed(order.getId());
+            default -> { }
+        }
+    }
+
+    public synchronized void record(Order order) {
+        if (order == null) throw new IllegalArgumentException("order null");
+        Contribution fresh = contribution(order);
+        Contribution old = fresh.guests().isEmpty() ? byOrder.remove(order.getId()) : byOrder.put(order.getId(), fresh);
+        // Правка пиццы без смены названия вклад не меняет
+        if (fresh.equals(old)) return;
+        // Заказ остаётся на своём месте в истории гостя, пока гость из него не удалён
+        if (old != null) {
+            for (UUID g : old.guests()) if (!fresh.guests().contains(g)) byId.get(g).orders.remove(order.getId());
+            eat(old, -1);
+        }
+        for (UUID g : fresh.guests()) byId.get(g).orders.add(order.getId());
+        eat(fresh, 1);
+    }
+
+    private synchronized void placed(UUID orderId) {
+        if (!byOrder.containsKey(orderId)) return;
+        placed.add(orderId);
+        Iterator<UUID> it = placed.iterator();
+        while (byOrder.size() > maxOrders && it.hasNext()) {
+            byOrder.remove(it.next());
+            it.remove();
+        }
+    }
+
+    public synchronized int trackedOrders() { return byOrder.size(); }
+
+    // Заказ больше не изменится: его вклад перестаёт храниться, а история гостей остаётся
+    public synchronized void forget(UUID orderId) {
+        placed.remove(orderId);
+        byOrder.remove(orderId);
+    }
+
+    private Contribution contribution(Order order) {
+        Set<UUID> guests = new HashSet<>();
+        for (Person g : order.getGuests()) if (byId.containsKey(g.getId())) guests.add(g.getId());
+        if (guests.isEmpty()) return new Contribution(Set.of(), Map.of());
+
+        Map<UUID, Map<String, Integer>> eaten = new HashMap<>();
+        List<Pizza> pizzas = new ArrayList<>(order.getPizzasList());
+        pizzas.addAll(order.getCustomPizzas());
+        for (Pizza p : pizzas) {
+            for (Person e : order.getGuestsForPizza(p.getId())) {
+                if (!guests.contains(e.getId())) continue;
+                eaten.computeIfAbsent(e.getId(), k -> new HashMap<>()).merge(p.getName(), 1, Integer::sum);
+            }
+        }
+        return new Contribution(guests, eaten);
+    }
+
+    private void eat(Contribution c, int sign) {
+        for (var e : c.eaten().entrySet()) {
+            History h = byId.get(e.getKey());
+            for (var p : e.getValue().entrySet()) {
+                String k = key(p.getKey());
+                int n = h.pizzas.merge(k, sign * p.getValue(), Integer::sum);
+                if (n <= 0) {
+                    h.pizzas.remove(k);
+                    h.pizzaNames.remove(k);
+                } else {
+                    h.pizzaNames.put(k, p.getKey());
+                }
+            }
+        }
+    }
+
+    // --------- Запросы ---------
+
+    public synchronized List<UUID> ordersOf(Person customer) {
+        History h = customer == null ? null : byId.get(customer.getId());
+        return h == null ? List.of() : List.copyOf(h.orders);
+    }
+
+    // Пиццы по убыванию числа съеденных; при равенстве — по названию
+    public synchronized List<PizzaCount> favouritePizzas(Person customer, int limit) {
+        if (limit < 1) throw new IllegalArgumentException("limit должен быть >= 1");
+        History h = customer == null ? null : byId.get(customer.getId());
+        if (h == null) return List.of();
+        List<PizzaCount> result = new ArrayList<>(h.pizzas.size());
+        for (var e : h.pizzas.entrySet()) result.add(new PizzaCount(h.pizzaNames.get(e.getKey()), e.getValue()));
+        result.sort(Comparator.comparingInt(PizzaCount::count).reversed().thenComparing(PizzaCount::name));
+        return result.size() > limit ? List.copyOf(result.subList(0, limit)) : result;
+    }
+}
@@ -0,0 +1,165 @@
+package service;
+
+import model.Ingredient;
+import model.Pizza;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Складские остатки ингредиентов. По каждому ингредиенту хранятся остаток на складе и резерв;
+// доступно — их разность. Резерв и возврат — через CAS по каждому ингредиенту, без общей блокировки.
+// Количество хранится в тысячных долях порции.
+// Зарезервированная пицца отслеживается: после правки её начинки резерв пересчитывается по новому составу.
+public class Inventory {
+    private static final long SCALE = 1000;
+
+    private record Level(long onHand, long reserved) {
+        long available() { return onHand - reserved; }
+    }
+
+    private record Stock(Ingredient ingredient, AtomicReference<Level> level) { }
+
+    private record Reservation(Map<UUID, Long> taken, Runnable watcher) { }
+
+    private final Map<UUID, Stock> stock = new ConcurrentHashMap<>();
+    private final Map<UUID, Reservation> reserved = new ConcurrentHashMap<>();
+
+    private static long toUnits(double portions) { return Math.round(portions * SCALE); }
+
+    private Stock stockOf(Ingredient ingredient) {
+        return stock.computeIfAbsent(ingredient.getId(), k -> new Stock(ingredient, new AtomicReference<>(new Level(0, 0))));
+    }
+
+    // Задаёт фактический остаток на складе; уже зарезервированное остаётся зарезервированным
+    public void setStock(Ingredient ingredient, double portions) {
+        if (ingredient == null) throw new IllegalArgumentException("ingredient null");
+        if (portions < 0) throw new IllegalArgumentException("Остаток не может быть отрицательным");
+        long units = toUnits(portions);
+        stockOf(ingredient).level().updateAndGet(l -> new Level(units, l.reserved()));
+    }
+
+    public void restock(Ingredient ingredient, double portions) {
+        if (ingredient == null) throw new IllegalArgumentException("ingredient null");
+        if (portions < 0) throw new IllegalArgumentException("Поставка не может быть отрицательной");
+        long units = toUnits(portions);
+        stockOf(ingredient).level().updateAndGet(l -> new Level(l.onHand() + units, l.reserved()));
+    }
+
+    public void untrack(UUID ingredientId) { stock.remove(ingredientId); }
+
+    public boolean isTracked(UUID ingredientId) { return stock.containsKey(ingredientId); }
+
+    // Для неотслеживаемых ингредиентов остаток не ограничен; отрицательное значение — резерв больше остатка
+    public double available(UUID ingredientId) {
+        Stock s = stock.get(ingredientId);
+        return s == null ? Double.POSITIVE_INFINITY : (double) s.level().get().available() / SCALE;
+    }
+
+    public double onHand(UUID ingredientId) {
+        Stock s = stock.get(ingredientId);
+        return s == null ? Double.POSITIVE_INFINITY : (double) s.level().get().onHand() / SCALE;
+    }
+
+    public double reservedPortions(UUID ingredientId) {
+        Stock s = stock.get(ingredientId);
+        return s == null ? 0 : (double) s.level().get().reserved() / SCALE;
+    }
+
+    public boolean isReserved(UUID pizzaId) { return reserved.containsKey(pizzaId); }
+
+    // Проверка перед добавлением в зарезервированную пиццу: хватит ли ещё portions порций
+    public void checkAvailable(Ingredient ingredient, double portions) {
+        Stock s = stock.get(ingredient.getId());
+        if (s != null && s.level().get().available() < toUnits(portions))
+            throw new IllegalStateException("Недостаточно на складе: " + ingredient.getName());
+    }
+
+    public void reserve(Pizza pizza) {
+        if (pizza == null) throw new IllegalArgumentException("pizza null");
+        Map<UUID, Long> taken = new HashMap<>();
+
+        for (var e : pizza.ingredientUsage().entrySet()) {
+            Stock s = stock.get(e.getKey());
+            if (s == null) continue;
+            long need = toUnits(e.getValue());
+            if (!tryTake(s.level(), need)) {
+                giveBack(taken);
+                throw new IllegalStateException("Недостаточно на складе: " + s.ingredient().getName());
+            }
+            taken.put(e.getKey(), need);
+        }
+
+        Reservation r = new Reservation(new ConcurrentHashMap<>(taken), () -> adjust(pizza));
+        if (reserved.putIfAbsent(pizza.getId(), r) != null) {
+            giveBack(taken);
+            throw new IllegalStateException("Пицца уже зарезервирована");
+        }
+        pizza.watch(r.watcher());
+    }
+
+    public void release(Pizza pizza) {
+        if (pizza == null) throw new IllegalArgumentException("pizza null");
+        Reservation r = reserved.remove(pizza.getId());
+        if (r == null) return;
+        pizza.unwatch(r.watcher());
+        synchronized (r) {
+            giveBack(r.taken());
+            r.taken().clear();
+        }
+    }
+
+    // Заказ с пиццей ушёл из памяти (архив, выгрузка): резерв списывается со склада, слежение снимается
+    public void consume(Pizza pizza) {
+        if (pizza == null) throw new IllegalArgumentException("pizza null");
+        Reservation r = reserved.remove(pizza.getId());
+        if (r == null) return;
+        pizza.unwatch(r.watcher());
+        synchronized (r) {
+            for (var e : r.taken().entrySet()) {
+                Stock s = stock.get(e.getKey());
+                long units = e.getValue();
+                if (s != null) s.level().updateAndGet(l -> new Level(l.onHand() - units, l.reserved() - units));
+            }
+            r.taken().clear();
+        }
+    }
+
+    // Пицца изменилась после резерва: резерв приводится к новому расходу. Добавления проверяются
+    // заранее (checkAvailable), поэтому здесь резерв берётся без отказа — при гонке доступное уйдёт в минус
+    private void adjust(Pizza pizza) {
+        Reservation r = reserved.get(pizza.getId());
+        if (r == null) return;
+        Map<UUID, Double> usage = pizza.ingredientUsage();
+        synchronized (r) {
+            if (reserved.get(pizza.getId()) != r) return;
+            Set<UUID> ids = new HashSet<>(r.taken().keySet());
+            ids.addAll(usage.keySet());
+            for (UUID id : ids) {
+                Stock s = stock.get(id);
+                long need = s == null ? 0 : toUnits(usage.getOrDefault(id, 0.0));
+                long delta = need - r.taken().getOrDefault(id, 0L);
+                if (delta == 0) continue;
+                if (s != null) s.level().updateAndGet(l -> new Level(l.onHand(), l.reserved() + delta));
+                if (need == 0) r.taken().remove(id);
+                else r.taken().put(id, need);
+            }
+        }
+    }
+
+    private static boolean tryTake(AtomicReference<Level> level, long need) {
+        while (true) {
+            Level cur = level.get();
+            if (cur.available() < need) return false;
+            if (level.compareAndSet(cur, new Level(cur.onHand(), cur.reserved() + need))) return true;
+        }
+    }
+
+    private void giveBack(Map<UUID, Long> taken) {
+        for (var e : taken.entrySet()) {
+            Stock s = stock.get(e.getKey());
+            long units = e.getValue();
+            if (s != null) s.level().updateAndGet(l -> new Level(l.onHand(), l.reserved() - units));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package service;
+
+import model.*;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Instant;
+import java.util.*;
+
+// Оценка занимаемой памяти по типам сущностей. Обходит заказы и пиццы App, считая размер объектов
+// по раскладке HotSpot x64 со сжатыми ссылками (заголовок 12 байт, ссылка 4, выравнивание 8).
+// Retained — всё, что принадлежит сущности исключительно (включая вложенные куски, порции, коллекции);
+// ингредиенты, основы и бортики — общие справочники, в retained владельцев не входят и считаются отдельно.
+// transient-поля (слушатели, guard, кеши описаний) не учитываются.
+public final class MemoryReport {
+    public record Row(String type, long count, long shallowBytes, long retainedBytes) { }
+
+    // exclusive — сущность используется ровно одной пиццей/заказом, shared — несколькими, unused — ни одной
+    public record CatalogRow(String type, long count, long bytes, long exclusive, long shared, long unused) { }
+
+    private static final int HEADER = 12, REF = 4, ARRAY_HEADER = 16;
+    // Узел записи HashMap/HashSet; ArrayList считается с ёмкостью не меньше 10 (ёмкость по умолчанию)
+    private static final int MAP_ENTRY = 32, LIST_MIN_CAPACITY = 10;
+
+    private final List<Row> rows;
+    private final List<CatalogRow> catalog;
+    private final long menuBytes, ordersBytes;
+
+    private MemoryReport(List<Row> rows, List<CatalogRow> catalog, long menuBytes, long ordersBytes) {
+        this.rows = rows;
+        this.catalog = catalog;
+        this.menuBytes = menuBytes;
+        this.ordersBytes = ordersBytes;
+    }
+
+    public List<Row> getRows() { return rows; }
+    public List<CatalogRow> getCatalog() { return catalog; }
+    public long getMenuBytes() { return menuBytes; }
+    public long getOrdersBytes() { return ordersBytes; }
+
+    public static MemoryReport of(App app) {
+        if (app == null) throw new IllegalArgumentException("app null");
+        Walker w = new Walker();
+
+        long menu = 0;
+        for (Pizza p : app.getAllPizzas()) menu += w.walk(p);
+        long orders = 0;
+        for (Order o : app.getAllOrders()) orders += w.walk(o);
+
+        List<Row> rows = new ArrayList<>();
+        for (String type : List.of("Заказы", "Пиццы", "Куски", "Порции", "Гости")) {
+            long[] s = w.stats.get(type);
+            if (s != null) rows.add(new Row(type, s[0], s[1], s[2]));
+        }
+
+        List<CatalogRow> catalog = new ArrayList<>();
+        catalog.add(w.catalogRow("Ингредиенты", app.getAllIngredients()));
+        catalog.add(w.catalogRow("Основы", app.getAllBases()));
+        catalog.add(w.catalogRow("Бортики", app.getAllSides()));
+        return new MemoryReport(List.copyOf(rows), List.copyOf(catalog), menu, orders);
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Оценка: HotSpot x64, сжатые ссылки (заголовок %d B, ссылка %d B), запись HashMap/HashSet %d B,%n"
+                + "ArrayList с ёмкостью не меньше %d; transient-поля не учитываются%n%n", HEADER, REF, MAP_ENTRY, LIST_MIN_CAPACITY));
+        sb.append(String.format("%-12s %8s %14s %14s%n", "тип", "кол-во", "shallow", "retained"));
+        for (Row r : rows) {
+            sb.append(String.format("%-12s %8d %14s %14s%n", r.type(), r.count(), bytes(r.shallowBytes()), bytes(r.retainedBytes())));
+        }
+        sb.append(String.format("Меню (пиццы каталога): %s, заказы: %s%n", bytes(menuBytes), bytes(ordersBytes)));
+        sb.append(String.format("%n%-12s %8s %14s %10s %10s %10s%n", "справочник", "кол-во", "размер", "один вл.", "общие", "не исп."));
+        for (CatalogRow c : catalog) {
+            sb.append(String.format("%-12s %8d %14s %10d %10d %10d%n",
+                    c.type(), c.count(), bytes(c.bytes()), c.exclusive(), c.shared(), c.unused()));
+        }
+        return sb.toString();
+    }
+
+    private static String bytes(long b) {
+        if (b < 10 * 1024) return b + " B";
+        if (b < 10L * 1024 * 1024) return String.format("%.1f KB", b / 1024.0);
+        return String.format("%.1f MB", b / (1024.0 * 1024));
+    }
+
+    // --------- Обход ---------
+
+    private static final class Walker {
+        private static final Map<Class<?>, List<Field>> FIELDS = new HashMap<>();
+        private static final Map<Class<?>, Long> SHALLOW = new HashMap<>();
+
+        // Владелец не обязан встречаться подряд: пицца A, потом B, потом снова A — это два владельца
+        private static final class Usage {
+            final Object firstOwner;
+            boolean shared;
+
+            Usage(Object firstOwner) { this.firstOwner = firstOwner; }
+        }
+
+        final Map<String, long[]> stats = new HashMap<>();
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<Object, Usage> usage = new IdentityHashMap<>();
+        private Object owner;
+
+        long walk(Object o) {
+            if (o == null || o instanceof Enum<?> || isCatalog(o)) {
+                if (o != null && isCatalog(o)) use(o);
+                return 0;
+            }
+            if (!visited.add(o)) return 0;
+
+            String type = typeOf(o);
+            Object savedOwner = owner;
+            if (o instanceof Pizza || o instanceof Order) owner = o;
+            long shallow = shallow(o);
+            long retained = shallow + children(o);
+            owner = savedOwner;
+
+            if (type != null) {
+                long[] s = stats.computeIfAbsent(type, k -> new long[3]);
+                s[0]++;
+                s[1] += shallow;
+                s[2] += retained;
+            }
+            return retained;
+        }
+
+        CatalogRow catalogRow(String type, List<? extends Entity> entities) {
+            long bytes = 0, exclusive = 0, shared = 0, unused = 0;
+            for (Entity e : entities) {
+                Usage u = usage.get(e);
+                if (u == null) unused++;
+                else if (u.shared) shared++;
+                else exclusive++;
+                bytes += ownSize(e);
+            }
+            return new CatalogRow(type, entities.size(), bytes, exclusive, shared, unused);
+        }
+
+        // Размер самой справочной сущности без ссылок на другие справочники
+        private long ownSize(Entity e) {
+            Object savedOwner = owner;
+            owner = e;
+            long size = visited.add(e) ? shallow(e) + children(e) : 0;
+            owner = savedOwner;
+            return size;
+        }
+
+        private void use(Object catalogEntity) {
+            if (owner == null || isCatalog(owner)) return;
+            Usage u = usage.get(catalogEntity);
+            if (u == null) usage.put(catalogEntity, new Usage(owner));
+            else if (u.firstOwner != owner) u.shared = true;
+        }
+
+        private static boolean isCatalog(Object o) {
+            return o instanceof Ingredient || o instanceof Base || o instanceof Side
+                    || o instanceof PriceList || o instanceof BasePricing;
+        }
+
+        private static String typeOf(Object o) {
+            if (o instanceof Order) return "Заказы";
+            if (o instanceof Pizza) return "Пиццы";
+            if (o instanceof Slice) return "Куски";
+            if (o instanceof IngredientPortion) return "Порции";
+            if (o instanceof Person) return "Гости";
+            return null;
+        }
+
+        // Размер содержимого: для своих классов — по полям, для коллекций JDK — по известной раскладке
+        private long children(Object o) {
+            if (o instanceof String || o instanceof UUID || o instanceof Instant || o instanceof Number
+                    || o instanceof Boolean || o instanceof Character) return 0;
+            if (o.getClass().isArray()) {
+                if (o.getClass().getComponentType().isPrimitive()) return 0;
+                long sum = 0;
+                for (int i = 0, n = Array.getLength(o); i < n; i++) sum += walk(Array.get(o, i));
+                return sum;
+            }
+            if (o instanceof Collection<?> c) {
+                long sum = 0;
+                for (Object x : c) sum += walk(x);
+                if (o instanceof Map<?, ?> || o instanceof Set<?>) sum += (long) MAP_ENTRY * c.size();
+                return sum;
+            }
+            if (o instanceof Map<?, ?> m) {
+                long sum = (long) MAP_ENTRY * m.size();
+                for (var e : m.entrySet()) sum += walk(e.getKey()) + walk(e.getValue());
+                return sum;
+            }
+            if (!isOwnClass(o.getClass())) return 0;
+
+            long sum = 0;
+            for (Field f : fields(o.getClass())) {
+                if (f.getType().isPrimitive()) continue;
+                try {
+                    sum += walk(f.get(o));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Нет доступа к полю " + f, e);
+                }
+            }
+            return sum;
+        }
+
+        private static boolean isOwnClass(Class<?> c) {
+            String n = c.getName();
+            return n.startsWith("model.") || n.startsWith("util.") || n.startsWith("service.") || n.startsWith("repo.");
+        }
+
+        private static long shallow(Object o) {
+            Class<?> c = o.getClass();
+            if (o instanceof String s) return 24 + align(ARRAY_HEADER + (latin1(s) ? s.length() : 2L * s.length()));
+            if (c.isArray()) {
+                Class<?> t = c.getComponentType();
+                return align(ARRAY_HEADER + (long) Array.getLength(o) * (t.isPrimitive() ? primitiveSize(t) : REF));
+            }
+            if (o instanceof ArrayList<?> l) return 24 + align(ARRAY_HEADER + (long) REF * Math.max(l.size(), l.isEmpty() ? 0 : LIST_MIN_CAPACITY));
+            if (o instanceof HashMap<?, ?> m) return 48 + align(ARRAY_HEADER + (long) REF * tableSize(m.size()));
+            if (o instanceof Collection<?> || o instanceof Map<?, ?>) return 24;
+            synchronized (SHALLOW) {
+                return SHALLOW.computeIfAbsent(c, k -> {
+                    long size = HEADER;
+                    for (Class<?> x = k; x != null; x = x.getSuperclass()) {
+                        for (Field f : x.getDeclaredFields()) {
+                            if (Modifier.isStatic(f.getModifiers())) continue;
+                            size += f.getType().isPrimitive() ? primitiveSize(f.getType()) : REF;
+                        }
+                    }
+                    return align(size);
+                });
+            }
+        }
+
+        private static List<Field> fields(Class<?> c) {
+            synchronized (FIELDS) {
+                return FIELDS.computeIfAbsent(c, k -> {
+                    List<Field> result = new ArrayList<>();
+                    for (Class<?> x = k; x != null && x != Object.class; x = x.getSuperclass()) {
+                        for (Field f : x.getDeclaredFields()) {
+                            int m = f.getModifiers();
+                            if (Modifier.isStatic(m) || Modifier.isTransient(m) || f.isSynthetic()) continue;
+                            f.setAccessible(true);
+                            result.add(f);
+                        }
+                    }
+                    return result;
+                });
+            }
+        }
+
+        private static boolean latin1(String s) {
+            for (int i = 0; i < s.length(); i++) if (s.charAt(i) > 0xFF) return false;
+            return true;
+        }
+
+        private static int tableSize(int entries) {
+            if (entries == 0) return 0;
+            int cap = 16;
+            while (cap * 0.75 < entries) cap <<= 1;
+            return cap;
+        }
+
+        private static int primitiveSize(Class<?> t) {
+            if (t == long.class || t == double.class) return 8;
+            if (t == int.class || t == float.class) return 4;
+            if (t == short.class || t == char.class) return 2;
+            return 1;
+        }
+
+        private static long align(long n) { return (n + 7) & ~7L; }
+    }
+}
@@ -0,0 +1,159 @@
+package service;
+
+import model.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Режим «один писатель на заказ»: у каждого открытого заказа с командами в очереди свой актор.
+// Команды одного заказа выполняются строго по очереди одним потоком за раз, разные заказы — параллельно.
+// Гарантия касается только команд, отправленных через OrderActors. App меняет заказ и в обход актора:
+// applyRepricing вызывает pricesChanged из своего потока, правка пиццы или каталога тоже приходит
+// в заказ из потока вызывающего. Слушатели заказа поэтому должны быть потокобезопасны.
+// Актор без команд удаляется, поэтому заказы, которые так и не оформили, не держат акторов.
+// Акторы выполняются на виртуальных потоках, если JVM их поддерживает, иначе на общем пуле.
+public class OrderActors implements AutoCloseable {
+    // Сколько команд актор выполняет подряд, прежде чем уступить поток другим заказам
+    private static final int BATCH = 64;
+
+    private final App app;
+    private final ExecutorService executor;
+    private final Map<UUID, Actor> actors = new ConcurrentHashMap<>();
+
+    public OrderActors(App app) { this(app, defaultExecutor()); }
+
+    public OrderActors(App app, ExecutorService executor) {
+        if (app == null || executor == null) throw new IllegalArgumentException("app/executor null");
+        this.app = app;
+        this.executor = executor;
+    }
+
+    // --------- Команды ---------
+
+    public <R> CompletableFuture<R> ask(UUID orderId, Function<Order, R> command) {
+        if (command == null) throw new IllegalArgumentException("command null");
+        Order order = app.getOrder(orderId);
+        if (order == null) throw new IllegalArgumentException("Нет заказа с id=" + orderId);
+        CompletableFuture<R> result = new CompletableFuture<>();
+        if (isClosed(order)) {
+            result.completeExceptionally(closedError(order));
+            return result;
+        }
+        // Команда кладётся в ящик под блокировкой записи карты: актор не удалится, не увидев её
+        Command<R> c = new Command<>(result, command);
+        Actor a = actors.compute(orderId, (id, cur) -> {
+            Actor next = cur != null ? cur : new Actor(order);
+            next.mailbox.add(c);
+            return next;
+        });
+        a.schedule();
+        return result;
+    }
+
+    public CompletableFuture<Void> tell(UUID orderId, Consumer<Order> command) {
+        if (command == null) throw new IllegalArgumentException("command null");
+        return ask(orderId, o -> {
+            command.accept(o);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> addPizza(UUID orderId, Pizza pizza) { return tell(orderId, o -> app.addPizzaToOrder(o, pizza)); }
+    public CompletableFuture<Void> removePizza(UUID orderId, Pizza pizza) { return tell(orderId, o -> app.removePizzaFromOrder(o, pizza)); }
+    public CompletableFuture<Void> createGuest(UUID orderId, Person guest) { return tell(orderId, o -> o.createGuest(guest)); }
+    public CompletableFuture<Void> removeGuest(UUID orderId, Person guest) { return tell(orderId, o -> o.removeGuest(guest)); }
+
+    public CompletableFuture<Void> addGuestToPizza(UUID orderId, Pizza pizza, Person guest) {
+        return tell(orderId, o -> o.addGuestToPizza(pizza, guest));
+    }
+
+    public CompletableFuture<Void> postponeTo(UUID orderId, LocalDate date, LocalTime time, ZoneId zone) {
+        return tell(orderId, o -> o.postponeTo(date, time, zone));
+    }
+
+    public CompletableFuture<String> describe(UUID orderId) { return ask(orderId, Order::describe); }
+
+    // Оформление — последняя команда заказа: поздние команды, и уже стоящие в очереди, получают ошибку
+    public CompletableFuture<Void> place(UUID orderId) { return tell(orderId, app::placeOrder); }
+
+    // Акторы с невыполненными командами
+    public int activeActors() { return actors.size(); }
+
+    @Override
+    public void close() { executor.shutdown(); }
+
+    private static boolean isClosed(Order order) { return order.isPlaced() || order.isReadOnly(); }
+
+    private static IllegalStateException closedError(Order order) {
+        return new IllegalStateException("Заказ " + order.getName() + " уже закрыт");
+    }
+
+    // --------- Актор ---------
+
+    private record Command<R>(CompletableFuture<R> result, Function<Order, R> body) {
+        void run(Order order) {
+            if (isClosed(order)) {
+                result.completeExceptionally(closedError(order));
+                return;
+            }
+            try {
+                result.complete(body.apply(order));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final class Actor implements Runnable {
+        private final Order order;
+        private final Queue<Command<?>> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Actor(Order order) { this.order = order; }
+
+        void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                Command<?> c;
+                while ((c = mailbox.poll()) != null) c.result().completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH; i++) {
+                Command<?> c = mailbox.poll();
+                if (c == null) break;
+                c.run(order);
+            }
+            // Ящик пуст — актор уходит из карты; новая команда создаст новый
+            if (mailbox.isEmpty()) actors.computeIfPresent(order.getId(), (id, cur) -> cur == this && mailbox.isEmpty() ? null : cur);
+            scheduled.set(false);
+            if (!mailbox.isEmpty()) schedule();
+        }
+    }
+
+    // Виртуальные потоки доступны с Java 21; на более старых JVM — пул по числу ядер
+    private static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "order-actor");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package service;
+
+import model.Order;
+import model.OrderChange;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record OrderEvent(UUID orderId, String orderNumber, OrderChange change, Instant at) {
+    public static OrderEvent of(Order order, OrderChange change) {
+        return new OrderEvent(order.getId(), order.getName(), change, Instant.now());
+    }
+}
@@ -0,0 +1,165 @@
+package service;
+
+import model.Order;
+import model.OrderChange;
+import model.OrderListener;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Поток событий заказов. У каждого подписчика свой ограниченный буфер и свой спрос;
+// публикация никогда не ждёт подписчика — при переполнении срабатывает OverflowPolicy.
+public class OrderEventPublisher implements Flow.Publisher<OrderEvent>, OrderListener, AutoCloseable {
+    private final Executor executor;
+    private final int bufferSize;
+    private final OverflowPolicy policy;
+    private final List<Sub> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    public OrderEventPublisher() { this(ForkJoinPool.commonPool(), 256, OverflowPolicy.DROP_OLDEST); }
+
+    public OrderEventPublisher(Executor executor, int bufferSize, OverflowPolicy policy) {
+        if (executor == null || policy == null) throw new IllegalArgumentException("executor/policy null");
+        if (bufferSize < 1) throw new IllegalArgumentException("Размер буфера должен быть >= 1");
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.policy = policy;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super OrderEvent> subscriber) {
+        if (subscriber == null) throw new NullPointerException("subscriber null");
+        Sub sub = new Sub(subscriber);
+        if (closed) sub.complete();
+        else subscribers.add(sub);
+        sub.schedule();
+    }
+
+    @Override
+    public void orderChanged(Order order, OrderChange change) { publish(OrderEvent.of(order, change)); }
+
+    public void publish(OrderEvent event) {
+        if (closed) return;
+        for (Sub s : subscribers) s.offer(event);
+    }
+
+    public int getSubscriberCount() { return subscribers.size(); }
+    public long getDroppedCount() { return dropped.get(); }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Sub s : subscribers) s.complete();
+        subscribers.clear();
+    }
+
+    private final class Sub implements Flow.Subscription {
+        private final Flow.Subscriber<? super OrderEvent> subscriber;
+        private final ArrayDeque<OrderEvent> buffer = new ArrayDeque<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private boolean started;
+        private boolean completing;
+        private Throwable error;
+
+        Sub(Flow.Subscriber<? super OrderEvent> subscriber) { this.subscriber = subscriber; }
+
+        void offer(OrderEvent event) {
+            synchronized (this) {
+                if (cancelled || completing || error != null) return;
+                if (buffer.size() >= bufferSize) {
+                    dropped.incrementAndGet();
+                    switch (policy) {
+                        case DROP_OLDEST -> buffer.poll();
+                        case DROP_NEWEST -> { return; }
+                        case CANCEL -> {
+                            buffer.clear();
+                            error = new IllegalStateException("Подписчик не успевает: буфер переполнен");
+                            subscribers.remove(this);
+                        }
+                    }
+                }
+                if (error == null) buffer.add(event);
+            }
+            schedule();
+        }
+
+        void complete() {
+            synchronized (this) { completing = true; }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                synchronized (this) {
+                    if (error == null) error = new IllegalArgumentException("request(n): n должно быть > 0");
+                }
+                subscribers.remove(this);
+            } else {
+                demand.getAndAccumulate(n, (cur, add) -> cur + add < 0 ? Long.MAX_VALUE : cur + add);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscribers.remove(this);
+            synchronized (this) { buffer.clear(); }
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                if (!started) {
+                    started = true;
+                    subscriber.onSubscribe(this);
+                }
+                while (!cancelled && demand.get() > 0) {
+                    OrderEvent next;
+                    synchronized (this) { next = buffer.poll(); }
+                    if (next == null) break;
+                    demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        cancel();
+                    }
+                }
+                if (!cancelled) {
+                    Throwable err;
+                    boolean done;
+                    synchronized (this) {
+                        err = error;
+                        done = completing && buffer.isEmpty();
+                    }
+                    if (err != null) {
+                        cancelled = true;
+                        subscriber.onError(err);
+                    } else if (done) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package service;
+
+import model.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Иерархическое колесо таймеров: 4 уровня по 64 слота, слот уровня L покрывает 64^L тиков.
+// Заказ кладётся в слот по времени готовности за O(1), перенос и отмена — O(1) через двусвязный список.
+// Пока до заказа далеко, он лежит на верхних уровнях и спускается вниз только при смене разряда текущего тика.
+// Пока кухня не назначена, заказы не регистрируются: отдавать их некому, а колесо росло бы без конца.
+// На колесе лежат все заказы, но кухня получает только оформленные: черновик, чьё время наступило,
+// снимается без отправки и возвращается на колесо при оформлении (или переносе), уже к своему времени.
+public class OrderScheduler implements OrderListener, AutoCloseable {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 4;
+
+    private static final class Node {
+        final Order order;
+        final long dueTick;
+        Node prev, next;
+        int level = -1, slot;
+
+        Node(Order order, long dueTick) {
+            this.order = order;
+            this.dueTick = dueTick;
+        }
+    }
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final Node[][] wheel = new Node[LEVELS][SLOTS];
+    // Заказы дальше, чем охватывает колесо; пересматриваются при переполнении верхнего уровня
+    private final List<Node> overflow = new ArrayList<>();
+    private final Map<UUID, Node> byOrder = new HashMap<>();
+    private long currentTick;
+    private volatile Consumer<Order> kitchen;
+    private ScheduledExecutorService ticker;
+    private long dispatched, dispatchErrors;
+
+    public OrderScheduler() { this(Clock.systemDefaultZone(), Duration.ofSeconds(1)); }
+
+    public OrderScheduler(Clock clock, Duration tick) {
+        if (clock == null || tick == null) throw new IllegalArgumentException("clock/tick null");
+        if (tick.toMillis() < 1) throw new IllegalArgumentException("Тик должен быть не меньше 1 мс");
+        this.clock = clock;
+        this.tickMillis = tick.toMillis();
+        this.currentTick = Math.floorDiv(clock.millis(), tickMillis);
+    }
+
+    public void setKitchen(Consumer<Order> kitchen) {
+        if (kitchen == null) throw new IllegalArgumentException("kitchen null");
+        this.kitchen = kitchen;
+    }
+
+    public boolean hasKitchen() { return kitchen != null; }
+
+    @Override
+    public void orderChanged(Order order, OrderChange change) {
+        switch (change) {
+            case TIME_CHANGED, PLACED -> {
+                if (hasKitchen()) schedule(order);
+            }
+            default -> { }
+        }
+    }
+
+    // --------- Регистрация ---------
+
+    // Повторный вызов для того же заказа переносит его на новое время
+    public synchronized void schedule(Order order) {
+        if (order == null) throw new IllegalArgumentException("order null");
+        cancel(order.getId());
+        long due = Math.floorDiv(order.getTime().toEpochMilli() + tickMillis - 1, tickMillis);
+        Node n = new Node(order, due);
+        byOrder.put(order.getId(), n);
+        place(n);
+    }
+
+    public synchronized boolean cancel(UUID orderId) {
+        Node n = byOrder.remove(orderId);
+        if (n == null) return false;
+        if (n.level >= 0) unlink(n);
+        else overflow.remove(n);
+        return true;
+    }
+
+    public synchronized boolean isScheduled(UUID orderId) { return byOrder.containsKey(orderId); }
+    public synchronized int pending() { return byOrder.size(); }
+    public synchronized long getDispatched() { return dispatched; }
+    public synchronized long getDispatchErrors() { return dispatchErrors; }
+
+    // --------- Ход времени ---------
+
+    // Фоновый тик; без него время двигают вызовы advance()
+    public synchronized void start() {
+        if (ticker != null) return;
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) ticker.shutdownNow();
+        ticker = null;
+    }
+
+    public int advance() { return advanceTo(clock.instant()); }
+
+    // Отдаёт на кухню оформленные заказы, ставшие готовыми к моменту now; кухня вызывается вне блокировки
+    public int advanceTo(Instant now) {
+        List<Order> due = new ArrayList<>();
+        synchronized (this) {
+            long target = Math.floorDiv(now.toEpochMilli(), tickMillis);
+            while (currentTick < target) {
+                if (byOrder.isEmpty()) {
+                    currentTick = target;
+                    break;
+                }
+                currentTick++;
+                for (int level = LEVELS - 1; level >= 1; level--) {
+                    if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) cascade(level, due);
+                }
+                if ((currentTick & ((1L << (BITS * LEVELS)) - 1)) == 0) reviewOverflow(due);
+                expire(wheel[0][(int) (currentTick & (SLOTS - 1))], due);
+                wheel[0][(int) (currentTick & (SLOTS - 1))] = null;
+            }
+        }
+        Consumer<Order> k = kitchen;
+        if (k == null) return 0;
+        int errors = 0;
+        int skipped = 0;
+        for (Order o : due) {
+            // Черновик ждёт оформления; заказ, уже снова стоящий на колесе (оформлен или перенесён
+            // после снятия), уйдёт в свой тик
+            if (!o.isPlaced() || isScheduled(o.getId())) {
+                skipped++;
+                continue;
+            }
+            try {
+                k.accept(o);
+            } catch (RuntimeException e) {
+                errors++;
+            }
+        }
+        synchronized (this) {
+            dispatched += due.size() - skipped - errors;
+            dispatchErrors += errors;
+        }
+        return due.size() - skipped;
+    }
+
+    // --------- Внутреннее ---------
+
+    // Уровень — младший, на котором старшие разряды времени готовности совпадают с текущим тиком
+    private void place(Node n) {
+        n.prev = n.next = null;
+        if (n.dueTick <= currentTick) {
+            n.level = 0;
+            link(n, 0, (int) ((currentTick + 1) & (SLOTS - 1)));
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * (level + 1);
+            if ((n.dueTick >>> shift) == (currentTick >>> shift)) {
+                link(n, level, (int) ((n.dueTick >>> (BITS * level)) & (SLOTS - 1)));
+                return;
+            }
+        }
+        n.level = -1;
+        overflow.add(n);
+    }
+
+    private void link(Node n, int level, int slot) {
+        n.level = level;
+        n.slot = slot;
+        Node head = wheel[level][slot];
+        n.next = head;
+        if (head != null) head.prev = n;
+        wheel[level][slot] = n;
+    }
+
+    private void unlink(Node n) {
+        if (n.prev != null) n.prev.next = n.next;
+        else wheel[n.level][n.slot] = n.next;
+        if (n.next != null) n.next.prev = n.prev;
+        n.prev = n.next = null;
+    }
+
+    private void cascade(int level, List<Order> due) {
+        int slot = (int) ((currentTick >>> (BITS * level)) & (SLOTS - 1));
+        Node n = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (n != null) {
+            Node next = n.next;
+            if (n.dueTick <= currentTick) {
+                byOrder.remove(n.order.getId());
+                due.add(n.order);
+            } else {
+                place(n);
+            }
+            n = next;
+        }
+    }
+
+    private void reviewOverflow(List<Order> due) {
+        List<Node> far = new ArrayList<>(overflow);
+        overflow.clear();
+        for (Node n : far) {
+            if (n.dueTick <= currentTick) {
+                byOrder.remove(n.order.getId());
+                due.add(n.order);
+            } else {
+                place(n);
+            }
+        }
+    }
+
+    private void expire(Node n, List<Order> due) {
+        while (n != null) {
+            byOrder.remove(n.order.getId());
+            due.add(n.order);
+            n = n.next;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package service;
+
+public enum OverflowPolicy {
+    DROP_OLDEST,
+    DROP_NEWEST,
+    CANCEL
+}
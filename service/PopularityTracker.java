@@ -0,0 +1,93 @@
+package service;
+
+import model.*;
+import util.SpaceSaving;
+
+import java.util.*;
+
+// Самые популярные пиццы, ингредиенты и бортики по оформленным заказам. Каждое оформление один раз
+// проходит по своим пиццам и обновляет три Space-Saving таблицы; запросы не трогают заказы вовсе.
+// Память ограничена ёмкостью таблиц, погрешность счёта — не больше total / capacity.
+public class PopularityTracker implements OrderListener {
+    // Конфигурация пиццы: одинаковые по составу пиццы из разных заказов считаются вместе
+    public record Config(String name, String base, Size size, Mode mode, String toppings) {
+        @Override
+        public String toString() {
+            return name + " (" + size.getName() + ", " + base + (toppings.isEmpty() ? "" : ", " + toppings) + ")";
+        }
+    }
+
+    private final SpaceSaving<Config> pizzas;
+    private final SpaceSaving<UUID> ingredients;
+    private final SpaceSaving<UUID> sides;
+
+    public PopularityTracker() { this(1024); }
+
+    public PopularityTracker(int capacity) {
+        this(new SpaceSaving<>(capacity), new SpaceSaving<>(capacity), new SpaceSaving<>(capacity));
+    }
+
+    private PopularityTracker(SpaceSaving<Config> pizzas, SpaceSaving<UUID> ingredients, SpaceSaving<UUID> sides) {
+        this.pizzas = pizzas;
+        this.ingredients = ingredients;
+        this.sides = sides;
+    }
+
+    // Ёмкость под допустимую погрешность: счёт ошибается не больше чем на epsilon * total
+    public static PopularityTracker withError(double epsilon) {
+        return new PopularityTracker(SpaceSaving.withError(epsilon), SpaceSaving.withError(epsilon), SpaceSaving.withError(epsilon));
+    }
+
+    public synchronized int capacity() { return pizzas.capacity(); }
+
+    @Override
+    public void orderChanged(Order order, OrderChange change) {
+        if (change == OrderChange.PLACED) record(order);
+    }
+
+    // Ингредиент считается порциями (с учётом множителя), бортик — один раз на пиццу
+    public synchronized void record(Order order) {
+        if (order == null) throw new IllegalArgumentException("order null");
+        List<Pizza> all = new ArrayList<>(order.getPizzasList());
+        all.addAll(order.getCustomPizzas());
+        for (Pizza p : all) {
+            Map<String, Integer> toppings = new TreeMap<>();
+            Set<UUID> pizzaSides = new HashSet<>();
+            for (Slice s : p.getSlices()) {
+                for (IngredientPortion ip : s.getIngredients()) {
+                    ingredients.add(ip.ingredient().getId(), ip.multiplier());
+                    toppings.merge(ip.ingredient().getName(), ip.multiplier(), Integer::sum);
+                }
+                if (s.getSide() != null) pizzaSides.add(s.getSide().getId());
+            }
+            if (p.getSide() != null) pizzaSides.add(p.getSide().getId());
+            for (UUID id : pizzaSides) sides.add(id);
+            pizzas.add(config(p, toppings));
+        }
+    }
+
+    private static Config config(Pizza p, Map<String, Integer> toppings) {
+        StringJoiner sj = new StringJoiner(", ");
+        for (var e : toppings.entrySet()) sj.add(e.getKey() + " x" + e.getValue());
+        return new Config(p.getName(), p.getBase().getName(), p.getSize(), p.getMode(), sj.toString());
+    }
+
+    // --------- Запросы ---------
+
+    public synchronized List<SpaceSaving.Entry<Config>> topPizzas(int n) { return pizzas.top(n); }
+    public synchronized List<SpaceSaving.Entry<UUID>> topIngredients(int n) { return ingredients.top(n); }
+    public synchronized List<SpaceSaving.Entry<UUID>> topSides(int n) { return sides.top(n); }
+
+    public synchronized long pizzaCount(Config config) { return pizzas.estimate(config); }
+    public synchronized long ingredientPortions(UUID ingredientId) { return ingredients.estimate(ingredientId); }
+    public synchronized long sideCount(UUID sideId) { return sides.estimate(sideId); }
+
+    public synchronized long placedPizzas() { return pizzas.total(); }
+    public synchronized double maxPizzaError() { return pizzas.maxError(); }
+
+    public synchronized void clear() {
+        pizzas.clear();
+        ingredients.clear();
+        sides.clear();
+    }
+}
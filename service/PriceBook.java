@@ -0,0 +1,32 @@
+package service;
+
+import model.PriceList;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Версии прайс-листов. Новая версия собирается целиком и публикуется одной атомарной заменой ссылки;
+// в памяти от неё остаются только изменившиеся цены.
+public class PriceBook {
+    private final AtomicReference<PriceList> current = new AtomicReference<>(PriceList.empty());
+    private final Map<Long, PriceList> history = new ConcurrentHashMap<>();
+
+    public PriceBook() { history.put(0L, current.get()); }
+
+    public PriceList current() { return current.get(); }
+
+    public PriceList version(long version) {
+        PriceList p = history.get(version);
+        if (p == null) throw new IllegalArgumentException("Нет прайс-листа версии " + version);
+        return p;
+    }
+
+    public synchronized PriceList publish(Map<UUID, Double> ingredients, Map<UUID, Double> bases, Map<UUID, Double> sides) {
+        PriceList next = current.get().next(ingredients, bases, sides);
+        history.put(next.getVersion(), next);
+        current.set(next);
+        return next;
+    }
+}
@@ -0,0 +1,103 @@
+package service;
+
+import model.*;
+
+import java.util.*;
+
+// Обратный индекс «позиция каталога -> пиццы, чья цена от неё зависит»: основа, ингредиенты кусков
+// и бортики. Индекс пиццы пересчитывается при каждом её изменении (пицца сообщает через watch),
+// поэтому при смене цен обходятся только зависимые пиццы, а не все меню и заказы.
+// Пицца из меню кладётся в заказы той же ссылкой, поэтому у одной пиццы может быть несколько владельцев:
+// меню и любые заказы; из индекса она уходит, когда владельцев не осталось.
+// Ингредиенты внутри бортика не индексируются: их бортик сейчас ищет вызывающий.
+public class PriceDependents {
+    private static final class Tracked {
+        final Pizza pizza;
+        final Set<Order> orders = new LinkedHashSet<>();
+        boolean menu;
+        Set<UUID> keys = Set.of();
+        Runnable watcher;
+
+        Tracked(Pizza pizza) { this.pizza = pizza; }
+    }
+
+    private final Map<UUID, Set<Tracked>> byKey = new HashMap<>();
+    private final Map<UUID, Tracked> byPizza = new HashMap<>();
+
+    // order == null — пицца из меню
+    public synchronized void track(Pizza pizza, Order order) {
+        if (pizza == null) throw new IllegalArgumentException("pizza null");
+        Tracked t = byPizza.get(pizza.getId());
+        if (t == null) {
+            Tracked fresh = new Tracked(pizza);
+            fresh.watcher = () -> reindex(fresh);
+            byPizza.put(pizza.getId(), fresh);
+            reindex(fresh);
+            pizza.watch(fresh.watcher);
+            t = fresh;
+        }
+        if (order == null) t.menu = true;
+        else t.orders.add(order);
+    }
+
+    // Снимает одного владельца (order == null — меню)
+    public synchronized void untrack(Pizza pizza, Order order) {
+        if (pizza == null) return;
+        Tracked t = byPizza.get(pizza.getId());
+        if (t == null) return;
+        if (order == null) t.menu = false;
+        else t.orders.remove(order);
+        if (t.menu || !t.orders.isEmpty()) return;
+        byPizza.remove(pizza.getId());
+        pizza.unwatch(t.watcher);
+        for (UUID k : t.keys) remove(k, t);
+    }
+
+    public synchronized int size() { return byPizza.size(); }
+
+    // Пиццы меню, зависящие от любой из позиций
+    public synchronized List<Pizza> menuPizzas(Set<UUID> keys) {
+        List<Pizza> result = new ArrayList<>();
+        for (Tracked t : using(keys)) if (t.menu) result.add(t.pizza);
+        return result;
+    }
+
+    // Заказы, в которых есть пицца, зависящая от любой из позиций
+    public synchronized List<Order> orders(Set<UUID> keys) {
+        Set<Order> result = new LinkedHashSet<>();
+        for (Tracked t : using(keys)) result.addAll(t.orders);
+        return new ArrayList<>(result);
+    }
+
+    private Set<Tracked> using(Set<UUID> keys) {
+        Set<Tracked> result = new LinkedHashSet<>();
+        for (UUID k : keys) result.addAll(byKey.getOrDefault(k, Set.of()));
+        return result;
+    }
+
+    private synchronized void reindex(Tracked t) {
+        if (byPizza.get(t.pizza.getId()) != t) return;
+        Set<UUID> fresh = keysOf(t.pizza);
+        if (fresh.equals(t.keys)) return;
+        for (UUID k : t.keys) if (!fresh.contains(k)) remove(k, t);
+        for (UUID k : fresh) if (!t.keys.contains(k)) byKey.computeIfAbsent(k, x -> new LinkedHashSet<>()).add(t);
+        t.keys = fresh;
+    }
+
+    private void remove(UUID key, Tracked t) {
+        Set<Tracked> set = byKey.get(key);
+        if (set == null) return;
+        set.remove(t);
+        if (set.isEmpty()) byKey.remove(key);
+    }
+
+    private static Set<UUID> keysOf(Pizza p) {
+        Set<UUID> keys = new HashSet<>();
+        keys.add(p.getBase().getId());
+        for (Slice slice : p.getSlices()) {
+            for (IngredientPortion ip : slice.getIngredients()) keys.add(ip.ingredient().getId());
+            if (slice.getSide() != null) keys.add(slice.getSide().getId());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,361 @@
+package service;
+
+import model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Акции из конфигурационного файла. Строки вида:
+//   promo "Большая за 10%" percent 10 when size LARGE
+//   promo "Минус 50 на тонкой" off 50 when base "Тонкая"
+//   promo "Вторая за полцены" every 2 percent 50
+//   promo "Три сырных за 1200" combo 3 price 1200 when ingredient "Сыр"
+//   promo "Счастливый час" percent 20 when hours 15:00-17:00
+// Условия when: size, base, mode, ingredient (можно несколько — нужны все), hours (по времени заказа).
+// Условия компилируются в таблицу решений: для каждого размера, режима и основы — битовая маска
+// подходящих акций, для ингредиентов — списки акций, которым они нужны. Пицца проверяется пересечением
+// масок: маски пересекаются по слову на 64 акции, счётчики ингредиентных условий трогаются
+// и сбрасываются только у акций с ингредиентами самой пиццы, а скидки считаются лишь по подходящим акциям.
+// Скидки не суммируются: на пиццу действует самая выгодная из подходящих акций.
+public final class PromotionEngine implements Promotions {
+    private enum Kind { PERCENT, OFF, EVERY, COMBO }
+
+    private record Promo(String name, Kind kind, int count, double value,
+                         Size size, Mode mode, String base, Set<String> ingredients,
+                         LocalTime from, LocalTime to) { }
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+    private final Promo[] promos;
+    private final ZoneId zone;
+    private final BitSet[] bySize;
+    // Индекс 0 — пицца без режима, далее Mode.ordinal() + 1
+    private final BitSet[] byMode;
+    private final Map<String, BitSet> byBase;
+    // Акции без условия на основу — для основ, которых нет в byBase
+    private final BitSet anyBase;
+    // Ингредиент условия -> его номер; по номеру — акции, которым он нужен
+    private final Map<String, Integer> ingredientIds;
+    private final int[][] byIngredient;
+    private final int[] required;
+    private final BitSet noIngredients;
+    private final BitSet timed;
+
+    private PromotionEngine(List<Promo> promos, ZoneId zone) {
+        this.promos = promos.toArray(new Promo[0]);
+        this.zone = zone;
+        int n = this.promos.length;
+
+        bySize = new BitSet[Size.values().length];
+        for (Size s : Size.values()) bySize[s.ordinal()] = mask(p -> p.size() == null || p.size() == s);
+        byMode = new BitSet[Mode.values().length + 1];
+        byMode[0] = mask(p -> p.mode() == null);
+        for (Mode m : Mode.values()) byMode[m.ordinal() + 1] = mask(p -> p.mode() == null || p.mode() == m);
+
+        anyBase = mask(p -> p.base() == null);
+        Map<String, BitSet> bases = new HashMap<>();
+        Map<String, List<Integer>> ingredients = new HashMap<>();
+        required = new int[n];
+        for (int i = 0; i < n; i++) {
+            Promo p = this.promos[i];
+            if (p.base() != null) bases.computeIfAbsent(p.base(), k -> (BitSet) anyBase.clone()).set(i);
+            for (String ingr : p.ingredients()) ingredients.computeIfAbsent(ingr, k -> new ArrayList<>()).add(i);
+            required[i] = p.ingredients().size();
+        }
+        byBase = Map.copyOf(bases);
+        Map<String, Integer> ids = new HashMap<>();
+        byIngredient = new int[ingredients.size()][];
+        for (var e : ingredients.entrySet()) {
+            int id = ids.size();
+            ids.put(e.getKey(), id);
+            byIngredient[id] = e.getValue().stream().mapToInt(Integer::intValue).toArray();
+        }
+        ingredientIds = Map.copyOf(ids);
+        noIngredients = mask(p -> p.ingredients().isEmpty());
+        timed = mask(p -> p.from() != null);
+    }
+
+    private BitSet mask(Predicate<Promo> matches) {
+        BitSet b = new BitSet(promos.length);
+        for (int i = 0; i < promos.length; i++) if (matches.test(promos[i])) b.set(i);
+        return b;
+    }
+
+    public int promoCount() { return promos.length; }
+
+    public List<String> promoNames() {
+        List<String> names = new ArrayList<>(promos.length);
+        for (Promo p : promos) names.add(p.name());
+        return names;
+    }
+
+    // --------- Расчёт ---------
+
+    @Override
+    public double[] discounts(Order order, List<Pizza> pizzas, double[] prices) {
+        if (promos.length == 0) return null;
+        BitSet active = activeAt(order);
+        if (active.isEmpty()) return null;
+
+        double[] best = new double[pizzas.size()];
+        // Пиццы, подходящие под групповые акции (every/combo), по номеру акции
+        List<List<Integer>> groups = null;
+        int[] hits = new int[promos.length];
+        // Акции, чьи счётчики hits тронула текущая пицца: сбрасываются только они
+        int[] touched = new int[promos.length];
+        // Номер пиццы (с 1), на которой ингредиент уже учтён: повтор на другом куске не считается
+        int[] seen = new int[byIngredient.length];
+
+        for (int i = 0; i < pizzas.size(); i++) {
+            BitSet m = matching(pizzas.get(i), i + 1, active, hits, touched, seen);
+            for (int k = m.nextSetBit(0); k >= 0; k = m.nextSetBit(k + 1)) {
+                Promo p = promos[k];
+                switch (p.kind()) {
+                    case PERCENT -> best[i] = Math.max(best[i], prices[i] * p.value() / 100);
+                    case OFF -> best[i] = Math.max(best[i], Math.min(p.value(), prices[i]));
+                    case EVERY, COMBO -> {
+                        if (groups == null) groups = new ArrayList<>(Collections.nCopies(promos.length, null));
+                        if (groups.get(k) == null) groups.set(k, new ArrayList<>());
+                        groups.get(k).add(i);
+                    }
+                }
+            }
+        }
+        if (groups != null) {
+            for (int k = 0; k < groups.size(); k++) {
+                if (groups.get(k) != null) applyGroup(promos[k], groups.get(k), prices, best);
+            }
+        }
+        for (int i = 0; i < best.length; i++) best[i] = Math.round(best[i] * 100.0) / 100.0;
+        return best;
+    }
+
+    // Акции по часам отсекаются один раз на заказ
+    private BitSet activeAt(Order order) {
+        BitSet active = new BitSet(promos.length);
+        active.set(0, promos.length);
+        if (timed.isEmpty()) return active;
+        LocalTime t = LocalTime.ofInstant(order.getTime(), zone);
+        for (int k = timed.nextSetBit(0); k >= 0; k = timed.nextSetBit(k + 1)) {
+            Promo p = promos[k];
+            boolean inside = p.from().isBefore(p.to())
+                    ? !t.isBefore(p.from()) && t.isBefore(p.to())
+                    : !t.isBefore(p.from()) || t.isBefore(p.to());
+            if (!inside) active.clear(k);
+        }
+        return active;
+    }
+
+    private BitSet matching(Pizza pizza, int stamp, BitSet active, int[] hits, int[] touched, int[] seen) {
+        BitSet m = (BitSet) active.clone();
+        m.and(bySize[pizza.getSize().ordinal()]);
+        m.and(byMode[pizza.getMode() == null ? 0 : pizza.getMode().ordinal() + 1]);
+        m.and(byBase.getOrDefault(pizza.getBase().nameKey(), anyBase));
+        if (m.isEmpty()) return m;
+
+        BitSet withIngredients = (BitSet) noIngredients.clone();
+        if (byIngredient.length > 0) {
+            int n = 0;
+            for (Slice s : pizza.getSlices()) {
+                for (IngredientPortion ip : s.getIngredients()) {
+                    Integer id = ingredientIds.get(ip.ingredient().nameKey());
+                    if (id == null || seen[id] == stamp) continue;
+                    seen[id] = stamp;
+                    for (int k : byIngredient[id]) {
+                        if (hits[k] == 0) touched[n++] = k;
+                        if (++hits[k] == required[k]) withIngredients.set(k);
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) hits[touched[i]] = 0;
+        }
+        m.and(withIngredients);
+        return m;
+    }
+
+    // every N — каждая N-я по убыванию цены; combo N — группы по N самых дорогих за фиксированную сумму
+    private static void applyGroup(Promo p, List<Integer> pizzas, double[] prices, double[] best) {
+        pizzas.sort((a, b) -> Double.compare(prices[b], prices[a]));
+        int n = p.count();
+        for (int from = 0; from + n <= pizzas.size(); from += n) {
+            List<Integer> group = pizzas.subList(from, from + n);
+            if (p.kind() == Kind.EVERY) {
+                int i = group.get(n - 1);
+                best[i] = Math.max(best[i], prices[i] * p.value() / 100);
+                continue;
+            }
+            double sum = 0;
+            for (int i : group) sum += prices[i];
+            if (sum <= p.value()) continue;
+            double ratio = (sum - p.value()) / sum;
+            for (int i : group) best[i] = Math.max(best[i], prices[i] * ratio);
+        }
+    }
+
+    private static String key(String name) { return name.trim().toLowerCase(Locale.ROOT); }
+
+    // --------- Загрузка ---------
+
+    public static PromotionEngine load(Path file) {
+        if (file == null) throw new IllegalArgumentException("file null");
+        try {
+            return parse(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать акции " + file, e);
+        }
+    }
+
+    public static PromotionEngine parse(String text) { return parse(text, ZoneId.systemDefault()); }
+
+    // Пустые строки и строки с # пропускаются; ошибка в любой строке отменяет загрузку целиком
+    public static PromotionEngine parse(String text, ZoneId zone) {
+        if (text == null) throw new IllegalArgumentException("text null");
+        if (zone == null) throw new IllegalArgumentException("zone null");
+        List<Promo> promos = new ArrayList<>();
+        String[] lines = text.split("\\R");
+        for (int n = 0; n < lines.length; n++) {
+            List<String> t = tokenize(lines[n]);
+            if (t.isEmpty() || t.get(0).startsWith("#")) continue;
+            try {
+                promos.add(promo(t));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Акции, строка " + (n + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new PromotionEngine(promos, zone);
+    }
+
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = TOKEN.matcher(line);
+        while (m.find()) tokens.add(m.group(1) != null ? m.group(1) : m.group(2));
+        return tokens;
+    }
+
+    // promo "имя" <percent N | off N | every N percent M | combo N price X> [when <условие> значение ...]
+    private static Promo promo(List<String> t) {
+        if (t.size() < 4 || !"promo".equals(t.get(0)))
+            throw new IllegalArgumentException("Ожидается: promo \"имя\" <скидка> [when условия]");
+        String name = t.get(1);
+        Kind kind;
+        int count = 1;
+        double value;
+        int at;
+        switch (t.get(2)) {
+            case "percent" -> {
+                kind = Kind.PERCENT;
+                value = percent(arg(t, 3));
+                at = 4;
+            }
+            case "off" -> {
+                kind = Kind.OFF;
+                value = amount(arg(t, 3));
+                at = 4;
+            }
+            case "every" -> {
+                kind = Kind.EVERY;
+                count = count(arg(t, 3));
+                expect(t, 4, "percent");
+                value = percent(arg(t, 5));
+                at = 6;
+            }
+            case "combo" -> {
+                kind = Kind.COMBO;
+                count = count(arg(t, 3));
+                expect(t, 4, "price");
+                value = amount(arg(t, 5));
+                at = 6;
+            }
+            default -> throw new IllegalArgumentException("Неизвестный вид скидки: " + t.get(2));
+        }
+
+        Size size = null;
+        Mode mode = null;
+        String base = null;
+        Set<String> ingredients = new HashSet<>();
+        LocalTime from = null, to = null;
+        if (at < t.size()) {
+            expect(t, at, "when");
+            if ((t.size() - at - 1) % 2 != 0 || t.size() == at + 1)
+                throw new IllegalArgumentException("После when ожидаются пары <условие> значение");
+            for (int i = at + 1; i < t.size(); i += 2) {
+                String v = t.get(i + 1);
+                switch (t.get(i)) {
+                    case "size" -> size = constant(Size.class, v, "размер");
+                    case "mode" -> mode = constant(Mode.class, v, "режим");
+                    case "base" -> base = key(v);
+                    case "ingredient" -> ingredients.add(key(v));
+                    case "hours" -> {
+                        String[] range = v.split("-");
+                        if (range.length != 2) throw new IllegalArgumentException("Ожидается интервал ЧЧ:ММ-ЧЧ:ММ: " + v);
+                        from = time(range[0]);
+                        to = time(range[1]);
+                    }
+                    default -> throw new IllegalArgumentException("Неизвестное условие: " + t.get(i));
+                }
+            }
+        }
+        return new Promo(name, kind, count, value, size, mode, base, Set.copyOf(ingredients), from, to);
+    }
+
+    private static String arg(List<String> t, int at) {
+        if (at >= t.size()) throw new IllegalArgumentException("Не хватает значения после " + t.get(at - 1));
+        return t.get(at);
+    }
+
+    private static void expect(List<String> t, int at, String word) {
+        if (!word.equals(arg(t, at))) throw new IllegalArgumentException("Ожидается " + word + ", а не " + t.get(at));
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, String v, String what) {
+        try {
+            return Enum.valueOf(type, v.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный " + what + ": " + v);
+        }
+    }
+
+    private static LocalTime time(String s) {
+        try {
+            return LocalTime.parse(s.length() == 4 ? "0" + s : s);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Неверное время: " + s);
+        }
+    }
+
+    private static int count(String s) {
+        try {
+            int v = Integer.parseInt(s);
+            if (v < 2) throw new IllegalArgumentException("В акции должно быть не меньше 2 пицц");
+            return v;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Не число: " + s);
+        }
+    }
+
+    private static double percent(String s) {
+        double v = amount(s);
+        if (v > 100) throw new IllegalArgumentException("Скидка не может быть больше 100%");
+        return v;
+    }
+
+    private static double amount(String s) {
+        try {
+            double v = Double.parseDouble(s.replace(',', '.'));
+            if (v < 0) throw new IllegalArgumentException("Значение не может быть отрицательным");
+            return v;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Не число: " + s);
+        }
+    }
+}
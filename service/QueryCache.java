@@ -0,0 +1,60 @@
+package service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Ограниченный LRU-кеш результатов фильтров. Запись действительна, пока версия репозитория
+// совпадает с версией на момент вычисления; устаревшая запись пересчитывается при обращении.
+public class QueryCache {
+    public record Stats(long hits, long misses, long evictions, int size) {
+        public double hitRate() { return hits + misses == 0 ? 0 : (double) hits / (hits + misses); }
+    }
+
+    private record Key(String query, List<Object> args) { }
+
+    private record Entry(long version, List<?> result) { }
+
+    private final int capacity;
+    private final Map<Key, Entry> entries;
+    private long hits, misses, evictions;
+
+    public QueryCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Ёмкость кеша должна быть >= 1");
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= QueryCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    // Версия читается до вычисления: если данные поменялись во время фильтра, запись сразу устареет
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String query, List<Object> args, long version, Supplier<List<T>> compute) {
+        Key key = new Key(query, args);
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && e.version() == version) {
+                hits++;
+                return (List<T>) e.result();
+            }
+            misses++;
+        }
+        List<T> result = List.copyOf(compute.get());
+        synchronized (this) {
+            entries.put(key, new Entry(version, result));
+        }
+        return result;
+    }
+
+    public synchronized void clear() { entries.clear(); }
+
+    public synchronized Stats stats() { return new Stats(hits, misses, evictions, entries.size()); }
+
+    public int getCapacity() { return capacity; }
+}
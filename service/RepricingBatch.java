@@ -0,0 +1,39 @@
+package service;
+
+import model.Order;
+import model.Pizza;
+import model.PriceList;
+
+import java.util.*;
+
+// Пакет изменений цен: проверяется целиком и применяется атомарно через App.applyRepricing
+public class RepricingBatch {
+    public record Result(PriceList prices, List<Pizza> affectedPizzas, List<Order> affectedOrders) { }
+
+    private final Map<UUID, Double> ingredients = new LinkedHashMap<>();
+    private final Map<UUID, Double> bases = new LinkedHashMap<>();
+    private Double classicPrice;
+
+    public RepricingBatch ingredient(UUID id, double price) {
+        if (id == null) throw new IllegalArgumentException("id null");
+        ingredients.put(id, price);
+        return this;
+    }
+
+    public RepricingBatch base(UUID id, double price) {
+        if (id == null) throw new IllegalArgumentException("id null");
+        bases.put(id, price);
+        return this;
+    }
+
+    public RepricingBatch classicBase(double price) {
+        classicPrice = price;
+        return this;
+    }
+
+    public boolean isEmpty() { return ingredients.isEmpty() && bases.isEmpty() && classicPrice == null; }
+
+    Map<UUID, Double> ingredients() { return ingredients; }
+    Map<UUID, Double> bases() { return bases; }
+    Double classicPrice() { return classicPrice; }
+}
@@ -0,0 +1,234 @@
+package service;
+
+import model.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// Инкрементальная аналитика продаж: каждый оформленный заказ вносит вклад в почасовые и посуточные корзины,
+// при изменении заказа старый вклад вычитается и добавляется новый. Запросы — O(1) по корзинам.
+// Черновики в продажи не попадают: брошенная корзина не выручка.
+public class SalesAnalytics implements OrderListener {
+    private final Clock clock;
+    private final Window hourly;
+    private final Window daily;
+    // В порядке оформления: вклады старше самого длинного окна снимаются с головы
+    private final LinkedHashMap<UUID, Contribution> byOrder = new LinkedHashMap<>();
+    private final long horizonSeconds;
+
+    public SalesAnalytics() { this(Clock.systemDefaultZone(), 48, 30); }
+
+    public SalesAnalytics(Clock clock, int hours, int days) {
+        if (clock == null) throw new IllegalArgumentException("clock null");
+        if (hours < 1 || days < 1) throw new IllegalArgumentException("Окно должно быть >= 1");
+        this.clock = clock;
+        this.hourly = new Window(3600, hours);
+        this.daily = new Window(86400, days);
+        this.horizonSeconds = Math.max(3600L * hours, 86400L * days);
+    }
+
+    @Override
+    public void orderChanged(Order order, OrderChange change) {
+        switch (change) {
+            case PLACED -> record(order);
+            case PIZZA_ADDED, PIZZA_REMOVED, PIZZA_CHANGED, PRICES_CHANGED -> {
+                if (order.isPlaced()) record(order);
+            }
+            default -> { }
+        }
+    }
+
+    // Заказ попадает в корзину по моменту оформления (момент продажи); неоформленный снимается
+    public synchronized void record(Order order) {
+        if (order == null) throw new IllegalArgumentException("order null");
+        if (!order.isPlaced()) {
+            forget(order.getId());
+            return;
+        }
+        long now = clock.instant().getEpochSecond();
+        advance(now);
+
+        Contribution old = byOrder.get(order.getId());
+        long placedAt = old == null ? now : old.placedAt;
+        Contribution fresh = Contribution.of(order, placedAt);
+
+        if (old != null) apply(old, -1);
+        apply(fresh, 1);
+        byOrder.put(order.getId(), fresh);
+    }
+
+    // Снимает продажу заказа со всех окон (например, отменённый заказ)
+    public synchronized void forget(UUID orderId) {
+        advance(clock.instant().getEpochSecond());
+        Contribution old = byOrder.remove(orderId);
+        if (old != null) apply(old, -1);
+    }
+
+    // Перестаёт следить за заказом, который больше не изменится (архив, выгрузка на диск):
+    // его продажа остаётся в окнах, а вклад не держится в памяти
+    public synchronized void detach(UUID orderId) { byOrder.remove(orderId); }
+
+    public synchronized int trackedOrders() { return byOrder.size(); }
+
+    // --------- Запросы ---------
+
+    public synchronized double revenueAt(Instant at, ChronoUnit unit) {
+        Window w = window(unit);
+        advance(clock.instant().getEpochSecond());
+        Bucket b = w.bucketAt(Math.floorDiv(at.getEpochSecond(), w.unitSeconds));
+        return b == null ? 0 : b.revenue;
+    }
+
+    public synchronized double rollingRevenue(ChronoUnit unit) { return current(unit).revenue; }
+
+    public synchronized int rollingPizzaCount(ChronoUnit unit) { return current(unit).pizzas; }
+
+    public synchronized int rollingPizzaCount(ChronoUnit unit, Size size) {
+        return current(unit).sizes[size.ordinal()];
+    }
+
+    public synchronized int rollingPizzaCount(ChronoUnit unit, Mode mode) {
+        return current(unit).modes[mode.ordinal()];
+    }
+
+    public synchronized int rollingPizzaCount(ChronoUnit unit, Base base) {
+        return current(unit).bases.getOrDefault(base.getId(), 0);
+    }
+
+    public synchronized double rollingConsumption(ChronoUnit unit, Ingredient ingredient) {
+        return current(unit).ingredients.getOrDefault(ingredient.getId(), 0.0);
+    }
+
+    public synchronized Map<UUID, Double> rollingConsumption(ChronoUnit unit) {
+        return Map.copyOf(current(unit).ingredients);
+    }
+
+    private Bucket current(ChronoUnit unit) {
+        Window w = window(unit);
+        advance(clock.instant().getEpochSecond());
+        return w.total;
+    }
+
+    private Window window(ChronoUnit unit) {
+        if (unit == ChronoUnit.HOURS) return hourly;
+        if (unit == ChronoUnit.DAYS) return daily;
+        throw new IllegalArgumentException("Поддерживаются только HOURS и DAYS");
+    }
+
+    // Вклад, вышедший за все окна, уже ни на что не влияет; повторное изменение такого заказа
+    // учитывается как новая продажа
+    private void advance(long epochSecond) {
+        hourly.advance(Math.floorDiv(epochSecond, hourly.unitSeconds));
+        daily.advance(Math.floorDiv(epochSecond, daily.unitSeconds));
+        Iterator<Contribution> it = byOrder.values().iterator();
+        while (it.hasNext() && it.next().placedAt <= epochSecond - horizonSeconds) it.remove();
+    }
+
+    private void apply(Contribution c, int sign) {
+        hourly.apply(Math.floorDiv(c.placedAt, hourly.unitSeconds), c, sign);
+        daily.apply(Math.floorDiv(c.placedAt, daily.unitSeconds), c, sign);
+    }
+
+    // --------- Внутреннее ---------
+
+    private record Contribution(long placedAt, double revenue, int pizzas, int[] sizes, int[] modes,
+                                Map<UUID, Integer> bases, Map<UUID, Double> ingredients) {
+        static Contribution of(Order order, long placedAt) {
+            int[] sizes = new int[Size.values().length];
+            int[] modes = new int[Mode.values().length];
+            Map<UUID, Integer> bases = new HashMap<>();
+            Map<UUID, Double> ingredients = new HashMap<>();
+            int pizzas = 0;
+
+            List<Pizza> all = new ArrayList<>(order.getPizzasList());
+            all.addAll(order.getCustomPizzas());
+            for (Pizza p : all) {
+                pizzas++;
+                sizes[p.getSize().ordinal()]++;
+                if (p.getMode() != null) modes[p.getMode().ordinal()]++;
+                bases.merge(p.getBase().getId(), 1, Integer::sum);
+                p.ingredientUsage().forEach((id, q) -> ingredients.merge(id, q, Double::sum));
+            }
+            return new Contribution(placedAt, order.getTotalPrice(), pizzas, sizes, modes, bases, ingredients);
+        }
+    }
+
+    private static final class Bucket {
+        double revenue;
+        int pizzas;
+        final int[] sizes = new int[Size.values().length];
+        final int[] modes = new int[Mode.values().length];
+        final Map<UUID, Integer> bases = new HashMap<>();
+        final Map<UUID, Double> ingredients = new HashMap<>();
+
+        void add(Contribution c, int sign) {
+            revenue += sign * c.revenue();
+            pizzas += sign * c.pizzas();
+            for (int i = 0; i < sizes.length; i++) sizes[i] += sign * c.sizes()[i];
+            for (int i = 0; i < modes.length; i++) modes[i] += sign * c.modes()[i];
+            c.bases().forEach((id, n) -> bases.merge(id, sign * n, (a, b) -> a + b == 0 ? null : a + b));
+            c.ingredients().forEach((id, q) ->
+                    ingredients.merge(id, sign * q, (a, b) -> Math.abs(a + b) < 1e-9 ? null : a + b));
+        }
+
+        void add(Bucket other, int sign) {
+            revenue += sign * other.revenue;
+            pizzas += sign * other.pizzas;
+            for (int i = 0; i < sizes.length; i++) sizes[i] += sign * other.sizes[i];
+            for (int i = 0; i < modes.length; i++) modes[i] += sign * other.modes[i];
+            other.bases.forEach((id, n) -> bases.merge(id, sign * n, (a, b) -> a + b == 0 ? null : a + b));
+            other.ingredients.forEach((id, q) ->
+                    ingredients.merge(id, sign * q, (a, b) -> Math.abs(a + b) < 1e-9 ? null : a + b));
+        }
+    }
+
+    // Кольцо корзин фиксированной длины; total — сумма живых корзин, поддерживается при вытеснении
+    private static final class Window {
+        final long unitSeconds;
+        final Bucket[] ring;
+        final long[] slotUnit;
+        final Bucket total = new Bucket();
+        long head = Long.MIN_VALUE;
+
+        Window(long unitSeconds, int length) {
+            this.unitSeconds = unitSeconds;
+            this.ring = new Bucket[length];
+            this.slotUnit = new long[length];
+        }
+
+        int slot(long unit) { return (int) Math.floorMod(unit, (long) ring.length); }
+
+        void advance(long unit) {
+            if (head == Long.MIN_VALUE) { head = unit; return; }
+            if (unit <= head) return;
+            long steps = Math.min(unit - head, ring.length);
+            for (long u = unit - steps + 1; u <= unit; u++) {
+                int s = slot(u);
+                if (ring[s] != null) {
+                    total.add(ring[s], -1);
+                    ring[s] = null;
+                }
+            }
+            head = unit;
+        }
+
+        Bucket bucketAt(long unit) {
+            if (unit > head || unit <= head - ring.length) return null;
+            int s = slot(unit);
+            return ring[s] != null && slotUnit[s] == unit ? ring[s] : null;
+        }
+
+        void apply(long unit, Contribution c, int sign) {
+            if (unit > head || unit <= head - ring.length) return;
+            int s = slot(unit);
+            if (ring[s] == null) {
+                ring[s] = new Bucket();
+                slotUnit[s] = unit;
+            }
+            ring[s].add(c, sign);
+            total.add(c, sign);
+        }
+    }
+}
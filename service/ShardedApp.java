@@ -0,0 +1,89 @@
+package service;
+
+import model.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+// Несколько пиццерий рядом: у каждой свой App (репозитории, цены основ).
+// Заказы маршрутизируются по ключу пиццерии. Фильтр по ингредиенту, основе или пицце идёт только
+// в пиццерию, где эта сущность заведена; остальные фильтры выполняются по всем шардам параллельно.
+public class ShardedApp implements AutoCloseable {
+    private final Map<String, App> shards = new ConcurrentSkipListMap<>();
+    private final double defaultClassicPrice;
+    private final ExecutorService pool;
+
+    public ShardedApp() { this(Runtime.getRuntime().availableProcessors(), 100.0); }
+
+    public ShardedApp(int parallelism, double defaultClassicPrice) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism должен быть >= 1");
+        this.defaultClassicPrice = defaultClassicPrice;
+        this.pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "shard-query");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public App shard(String storeKey) {
+        if (storeKey == null || storeKey.isBlank()) throw new IllegalArgumentException("Пустой ключ пиццерии");
+        return shards.computeIfAbsent(storeKey, k -> new App(new BasePricing(defaultClassicPrice)));
+    }
+
+    public boolean hasShard(String storeKey) { return shards.containsKey(storeKey); }
+    public Set<String> getStoreKeys() { return Collections.unmodifiableSet(shards.keySet()); }
+
+    public Order createOrder(String storeKey, String number) { return shard(storeKey).createOrder(number); }
+
+    // --------- Фильтры по всем пиццериям ---------
+
+    public List<Pizza> pizzasWithIngredient(Ingredient ingredient) { return routed(ingredient, a -> a.pizzasWithIngredient(ingredient)); }
+    public List<Pizza> pizzasByBase(Base base) { return routed(base, a -> a.pizzasByBase(base)); }
+    public List<Pizza> pizzasBySize(Size size) { return fanOut(a -> a.pizzasBySize(size)); }
+    public List<Pizza> pizzasByMode(Mode mode) { return fanOut(a -> a.pizzasByMode(mode)); }
+
+    public List<Order> ordersMoreThan(double minTotal) { return fanOut(a -> a.ordersMoreThan(minTotal)); }
+    public List<Order> ordersAtDay(LocalDate day, ZoneId zone) { return fanOut(a -> a.ordersAtDay(day, zone)); }
+    public List<Order> ordersWithPizza(Pizza pizza) { return routed(pizza, a -> a.ordersWithPizza(pizza)); }
+    public List<Order> ordersWithIngredient(Ingredient ingredient) { return routed(ingredient, a -> a.ordersWithIngredient(ingredient)); }
+
+    // Сущности разных пиццерий не пересекаются, поэтому ответ есть только у владельца.
+    // Пицца, собранная прямо в заказе, нигде не заведена — тогда спрашиваем всех
+    private <T> List<T> routed(Entity key, Function<App, List<T>> query) {
+        if (key == null) return fanOut(query);
+        for (App app : shards.values()) if (app.owns(key)) return query.apply(app);
+        return fanOut(query);
+    }
+    public List<Order> ordersWithMinGuests(int n) { return fanOut(a -> a.ordersWithMinGuests(n)); }
+
+    // Результаты склеиваются в порядке ключей пиццерий
+    private <T> List<T> fanOut(Function<App, List<T>> query) {
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (App app : shards.values()) futures.add(pool.submit(() -> query.apply(app)));
+
+        List<T> merged = new ArrayList<>();
+        for (Future<List<T>> f : futures) {
+            try {
+                merged.addAll(f.get());
+            } catch (ExecutionException e) {
+                for (Future<List<T>> other : futures) other.cancel(true);
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Запрос прерван", e);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    // Закрывает и магазины: у каждого App свой планировщик с потоком-тикером
+    public void close() {
+        pool.shutdownNow();
+        for (App app : shards.values()) app.close();
+    }
+}
@@ -0,0 +1,94 @@
+package model;
+
+import service.App;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static util.Checks.*;
+
+public class BinaryCodecTest {
+    public static void main(String[] args) {
+        run("пицца: бортики и ингредиенты кусков, в том числе снятый бортик", BinaryCodecTest::pizzaRoundTrip);
+        run("заказ: гости, едоки, комментарий, время и оформление", BinaryCodecTest::orderRoundTrip);
+        run("обрезанные данные дают IllegalArgumentException", BinaryCodecTest::truncated);
+        done();
+    }
+
+    private static App app() {
+        App app = new App();
+        app.seedDefaults();
+        return app;
+    }
+
+    private static Pizza sample(App app) {
+        Side side = app.getAllSides().get(0);
+        Pizza p = app.createPizza("Круговая", app.getAllBases().get(0), Size.SMALL, Mode.PARTS, side);
+        p.addIngredientsBasic(app.getAllIngredients().get(0), 2);
+        p.addIngredientParts(app.getAllIngredients().get(1), 1, 2, 4);
+        p.setSideToSlice(3, null);
+        return p;
+    }
+
+    private static void samePizza(Pizza expected, Pizza actual) {
+        equal(expected.getId(), actual.getId(), "id");
+        equal(expected.getName(), actual.getName(), "название");
+        equal(expected.getBase().getId(), actual.getBase().getId(), "основа");
+        equal(expected.getSize(), actual.getSize(), "размер");
+        equal(expected.getMode(), actual.getMode(), "режим");
+        equal(expected.getSide(), actual.getSide(), "бортик пиццы");
+        for (int i = 0; i < expected.getSlices().size(); i++) {
+            Slice e = expected.getSlices().get(i), a = actual.getSlices().get(i);
+            equal(e.getSide(), a.getSide(), "бортик куска " + (i + 1));
+            equal(e.getIngredients(), a.getIngredients(), "ингредиенты куска " + (i + 1));
+        }
+    }
+
+    private static void pizzaRoundTrip() {
+        App app = app();
+        Pizza p = sample(app);
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        BinaryCodec.writePizza(buf, p);
+        buf.flip();
+
+        Pizza back = BinaryCodec.readPizza(buf, app.catalog());
+        check(back.getSlices().get(2).getSide() == null, "снятый бортик остался снятым");
+        samePizza(p, back);
+        check(!buf.hasRemaining(), "прочитано всё записанное");
+    }
+
+    private static void orderRoundTrip() {
+        App app = app();
+        Pizza p = sample(app);
+        Order o = app.createOrder("42");
+        Person ann = app.customer("Аня");
+        o.createGuest(ann);
+        app.addPizzaToOrder(o, p);
+        o.addGuestToPizza(p, ann);
+        o.setComment("без лука");
+        app.placeOrder(o);
+
+        Order back = BinaryCodec.decode(BinaryCodec.encode(o), app.catalog());
+        equal(o.getId(), back.getId(), "id");
+        equal(o.getName(), back.getName(), "номер");
+        equal(o.getTime(), back.getTime(), "время");
+        equal(o.getComment(), back.getComment(), "комментарий");
+        equal(List.of(ann.getId()), back.getGuests().stream().map(Entity::getId).toList(), "гости");
+        check(back.isPlaced(), "оформлен");
+        near(o.getTotalPrice(), back.getTotalPrice(), 1e-9, "итог");
+        near(o.billOf(ann), back.billOf(back.getGuests().get(0)), 1e-9, "счёт гостя");
+        samePizza(p, back.getPizzasList().get(0));
+        equal(1, back.getGuestsForPizza(p.getId()).size(), "едоки пиццы");
+    }
+
+    private static void truncated() {
+        App app = app();
+        Order o = app.createOrder("7");
+        app.addPizzaToOrder(o, sample(app));
+        ByteBuffer full = BinaryCodec.encode(o);
+        for (int cut : new int[] { 0, 1, full.remaining() / 2, full.remaining() - 1 }) {
+            ByteBuffer part = full.duplicate().limit(cut);
+            fails(IllegalArgumentException.class, () -> BinaryCodec.decode(part, app.catalog()));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package model;
+
+import repo.Repository;
+import service.App;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static util.Checks.*;
+
+public class OptimisticLockTest {
+    public static void main(String[] args) {
+        run("совпавшая версия: правка применена, версия новая", OptimisticLockTest::success);
+        run("устаревшая версия: исключение с версиями, сущность не тронута", OptimisticLockTest::staleVersion);
+        run("правка без изменений всё равно сдвигает версию", OptimisticLockTest::emptyMutation);
+        run("Repository.update: конфликт и неизвестный id", OptimisticLockTest::repositoryUpdate);
+        run("App.updateOrder отвергает правку по старой версии", OptimisticLockTest::appOrder);
+        run("параллельные правки с повтором не теряют изменений", OptimisticLockTest::concurrentRetries);
+        done();
+    }
+
+    private static void success() {
+        Ingredient i = new Ingredient("Сыр", 30);
+        long v = i.getVersion();
+        long next = i.updateIfVersion(v, () -> i.setPrice(40));
+        near(40, i.getPrice(), 1e-9, "цена");
+        check(next > v, "версия выросла");
+        equal(next, i.getVersion(), "возвращена текущая версия");
+    }
+
+    private static void staleVersion() {
+        Ingredient i = new Ingredient("Сыр", 30);
+        long stale = i.getVersion();
+        i.setPrice(35);
+        long current = i.getVersion();
+        try {
+            i.updateIfVersion(stale, () -> i.setPrice(50));
+            check(false, "ожидалась OptimisticLockException");
+        } catch (OptimisticLockException e) {
+            equal(i.getId(), e.getEntityId(), "id");
+            equal(stale, e.getExpectedVersion(), "ожидаемая версия");
+            equal(current, e.getActualVersion(), "текущая версия");
+        }
+        near(35, i.getPrice(), 1e-9, "цена не изменилась");
+        equal(current, i.getVersion(), "версия не изменилась");
+    }
+
+    private static void emptyMutation() {
+        Ingredient i = new Ingredient("Сыр", 30);
+        long v = i.getVersion();
+        long next = i.updateIfVersion(v, () -> { });
+        check(next > v, "версия выросла");
+        fails(OptimisticLockException.class, () -> i.updateIfVersion(v, () -> { }));
+        fails(IllegalArgumentException.class, () -> i.updateIfVersion(next, null));
+    }
+
+    private static void repositoryUpdate() {
+        Repository<Ingredient> repo = new Repository<>();
+        Ingredient i = new Ingredient("Сыр", 30);
+        repo.add(i);
+        long v = i.getVersion();
+        long next = repo.update(i.getId(), v, x -> x.setPrice(31));
+        fails(OptimisticLockException.class, () -> repo.update(i.getId(), v, x -> x.setPrice(99)));
+        near(31, repo.get(i.getId()).getPrice(), 1e-9, "конфликтная правка не применена");
+        repo.update(i.getId(), next, x -> x.setPrice(32));
+        near(32, i.getPrice(), 1e-9, "правка по свежей версии применена");
+        fails(IllegalArgumentException.class, () -> repo.update(UUID.randomUUID(), v, x -> { }));
+    }
+
+    private static void appOrder() {
+        App app = new App(new BasePricing(100));
+        Order o = app.createOrder("1");
+        long v = o.getVersion();
+        app.updateOrder(o.getId(), v, x -> x.setComment("без лука"));
+        fails(OptimisticLockException.class, () -> app.updateOrder(o.getId(), v, x -> x.setComment("с луком")));
+        equal("без лука", o.getComment(), "комментарий первой правки");
+    }
+
+    // Каждый поток читает версию и цену, затем пытается записать цену + 1; при конфликте перечитывает
+    private static void concurrentRetries() {
+        Ingredient i = new Ingredient("Сыр", 0);
+        int threads = 8, perThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int k = 0; k < perThread; k++) {
+                    while (true) {
+                        long v = i.getVersion();
+                        double price = i.getPrice();
+                        try {
+                            i.updateIfVersion(v, () -> i.setPrice(price + 1));
+                            break;
+                        } catch (OptimisticLockException e) {
+                            // перечитать и повторить
+                        }
+                    }
+                }
+            });
+            workers.add(w);
+            w.start();
+        }
+        start.countDown();
+        for (Thread w : workers) {
+            try {
+                w.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        near(threads * perThread, i.getPrice(), 1e-9, "все правки учтены");
+    }
+}
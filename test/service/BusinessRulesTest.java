@@ -0,0 +1,154 @@
+package service;
+
+import model.*;
+
+import static util.Checks.*;
+
+public class BusinessRulesTest {
+    private static final String RULES = """
+            # правила пиццерии
+            max-toppings-per-slice = 2
+            max-guests = 2
+            ban ingredient "Томаты" with ingredient "Колбаски"
+            ban ingredient "колбаски" with size SMALL
+            ban ingredient "Сыр" with base "Черная"
+            ban side "Сырный" with base "Тонкая"
+            """;
+
+    public static void main(String[] args) {
+        run("ошибка разбора называет строку, правила не загружаются", BusinessRulesTest::parseErrors);
+        run("в ruleCount входят все цепочки, включая смену основы", BusinessRulesTest::ruleCount);
+        run("лимит ингредиентов на кусок", BusinessRulesTest::maxToppings);
+        run("запрет пары ингредиентов в обе стороны и без учёта регистра", BusinessRulesTest::ingredientPair);
+        run("запрет ингредиента по размеру", BusinessRulesTest::ingredientSize);
+        run("запрет ингредиента и бортика по основе, в том числе при смене основы", BusinessRulesTest::baseBans);
+        run("запрет бортика для пиццы действует и без правил, и вместе с ними", BusinessRulesTest::sideBanList);
+        run("лимит гостей в заказе", BusinessRulesTest::maxGuests);
+        done();
+    }
+
+    private static App app(String rules) {
+        App app = new App(new BasePricing(100));
+        app.seedDefaults();
+        if (rules != null) app.setRules(BusinessRules.parse(rules));
+        return app;
+    }
+
+    private static Ingredient ingredient(App app, String name) {
+        return app.getAllIngredients().stream().filter(i -> i.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static Base base(App app, String name) {
+        return app.getAllBases().stream().filter(b -> b.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static Side side(App app, String name) {
+        return app.getAllSides().stream().filter(s -> s.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static Pizza pizza(App app, String base, Size size) {
+        return app.createPizza("Тест", base(app, base), size, Mode.PARTS, null);
+    }
+
+    private static void parseErrors() {
+        String[][] cases = {
+                { "max-guests = 2\nmax-guests = 0", "строка 2" },
+                { "\n# комментарий\nmax-price pizza = 10", "строка 3" },
+                { "ban ingredient \"Сыр\" with size HUGE", "строка 1" },
+                { "max-toppings-per-slice = много", "строка 1" },
+                { "forbid everything", "строка 1" },
+        };
+        for (String[] c : cases) {
+            try {
+                BusinessRules.parse(c[0]);
+                check(false, "ожидалась ошибка для: " + c[0]);
+            } catch (IllegalArgumentException e) {
+                check(e.getMessage().startsWith("Правила, " + c[1] + ":"), "номер строки: " + e.getMessage());
+            }
+        }
+        equal(0, BusinessRules.parse("\n# пусто\n\n").ruleCount(), "пустые строки и комментарии");
+    }
+
+    private static void ruleCount() {
+        // ингредиент: лимит, пары, размер, основа; бортик: основа; смена основы: две; гости
+        equal(8, BusinessRules.parse(RULES).ruleCount(), "все правила");
+        equal(2, BusinessRules.parse("max-price ingredient = 50\nmax-price base = 150").ruleCount(), "цены");
+    }
+
+    private static void maxToppings() {
+        App app = app(RULES);
+        Pizza p = pizza(app, "Классическая", Size.MEDIUM);
+        p.addIngredientToSlice(1, ingredient(app, "Сыр"), 1);
+        p.addIngredientToSlice(1, ingredient(app, "Томаты"), 1);
+        fails(IllegalArgumentException.class, () -> p.addIngredientToSlice(1, ingredient(app, "Колбаски"), 1));
+        equal(2, p.getSlices().get(0).getIngredients().size(), "третий ингредиент не добавлен");
+        p.addIngredientToSlice(2, ingredient(app, "Колбаски"), 1);
+    }
+
+    private static void ingredientPair() {
+        App app = app(RULES);
+        Pizza a = pizza(app, "Классическая", Size.MEDIUM);
+        a.addIngredientToSlice(1, ingredient(app, "Колбаски"), 1);
+        fails(IllegalArgumentException.class, () -> a.addIngredientToSlice(1, ingredient(app, "Томаты"), 1));
+
+        Pizza b = pizza(app, "Классическая", Size.MEDIUM);
+        b.addIngredientsBasic(ingredient(app, "Томаты"), 1);
+        fails(IllegalArgumentException.class, () -> b.addIngredientParts(ingredient(app, "Колбаски"), 1, 1, 2));
+        check(b.getSlices().stream().allMatch(s -> s.getIngredients().size() == 1), "пакетная правка не применена частично");
+    }
+
+    private static void ingredientSize() {
+        App app = app(RULES);
+        fails(IllegalArgumentException.class,
+                () -> pizza(app, "Классическая", Size.SMALL).addIngredientsBasic(ingredient(app, "Колбаски"), 1));
+        pizza(app, "Классическая", Size.LARGE).addIngredientsBasic(ingredient(app, "Колбаски"), 1);
+    }
+
+    private static void baseBans() {
+        App app = app(RULES);
+        fails(IllegalArgumentException.class,
+                () -> pizza(app, "Черная", Size.MEDIUM).addIngredientsBasic(ingredient(app, "Сыр"), 1));
+
+        Pizza cheese = pizza(app, "Классическая", Size.MEDIUM);
+        cheese.addIngredientsBasic(ingredient(app, "Сыр"), 1);
+        fails(IllegalArgumentException.class, () -> cheese.setBase(base(app, "Черная")));
+        equal("Классическая", cheese.getBase().getName(), "основа не сменилась");
+
+        Side cheeseSide = side(app, "Сырный");
+        fails(IllegalArgumentException.class, () -> pizza(app, "Тонкая", Size.MEDIUM).addSideBasic(cheeseSide));
+        fails(IllegalArgumentException.class,
+                () -> app.createPizza("Сразу с бортом", base(app, "Тонкая"), Size.MEDIUM, Mode.BASIC, cheeseSide));
+
+        Pizza withSide = pizza(app, "Классическая", Size.MEDIUM);
+        withSide.addSideParts(cheeseSide, 1, 2);
+        fails(IllegalArgumentException.class, () -> withSide.setBase(base(app, "Тонкая")));
+        withSide.setBase(base(app, "Черная"));
+    }
+
+    private static void sideBanList() {
+        for (String rules : new String[] { null, RULES }) {
+            App app = app(rules);
+            Pizza p = pizza(app, "Классическая", Size.MEDIUM);
+            Side sausageSide = side(app, "Колбасный");
+            sausageSide.addBanPizza(p);
+            fails(IllegalArgumentException.class, () -> p.addSideBasic(sausageSide));
+            fails(IllegalArgumentException.class, () -> p.setSideToSlice(3, sausageSide));
+            check(p.getSlices().stream().allMatch(s -> s.getSide() == null), "бортик не поставлен");
+            sausageSide.removeBanPizza(p);
+            p.addSideBasic(sausageSide);
+        }
+    }
+
+    private static void maxGuests() {
+        App app = app(RULES);
+        Order o = app.createOrder("1");
+        o.createGuest(app.customer("Аня"));
+        o.createGuest(app.customer("Боря"));
+        fails(IllegalArgumentException.class, () -> o.createGuest(app.customer("Вера")));
+        equal(2, o.getGuests().size(), "третий гость не добавлен");
+
+        app.setRules(BusinessRules.parse("max-guests = 3"));
+        o.createGuest(app.customer("Вера"));
+        equal(3, o.getGuests().size(), "новые правила подхвачены без обхода заказов");
+    }
+}
@@ -0,0 +1,119 @@
+package service;
+
+import model.Order;
+import model.PriceList;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static util.Checks.*;
+
+public class OrderSchedulerTest {
+    public static void main(String[] args) {
+        run("оформленный заказ уходит на кухню в свой тик", OrderSchedulerTest::dueDispatch);
+        run("черновик не отправляется, после оформления уходит", OrderSchedulerTest::draftHeldBack);
+        run("перенос оформленного заказа сдвигает отправку", OrderSchedulerTest::postpone);
+        run("отменённый заказ не отправляется", OrderSchedulerTest::cancel);
+        run("дальний заказ спускается с верхних уровней и из overflow", OrderSchedulerTest::overflowCascade);
+        run("без кухни заказы не копятся", OrderSchedulerTest::noKitchen);
+        done();
+    }
+
+    private static OrderScheduler scheduler(List<Order> kitchen, Duration tick) {
+        OrderScheduler s = new OrderScheduler(Clock.systemUTC(), tick);
+        s.setKitchen(kitchen::add);
+        return s;
+    }
+
+    private static Order placedAt(OrderScheduler s, Instant time) {
+        Order o = new Order("t");
+        o.addListener(s);
+        o.setTime(time);
+        s.schedule(o);
+        o.place(PriceList.empty());
+        return o;
+    }
+
+    private static void dueDispatch() {
+        List<Order> kitchen = new ArrayList<>();
+        OrderScheduler s = scheduler(kitchen, Duration.ofSeconds(1));
+        Instant due = Instant.now().plusSeconds(30);
+        Order o = placedAt(s, due);
+
+        equal(0, s.advanceTo(due.minusSeconds(2)), "до срока");
+        check(kitchen.isEmpty(), "кухня пуста до срока");
+        equal(1, s.advanceTo(due.plusSeconds(1)), "в срок");
+        equal(List.of(o), kitchen, "кухня получила заказ");
+        equal(0, s.pending(), "колесо пусто");
+        equal(1L, s.getDispatched(), "счётчик отправок");
+    }
+
+    private static void draftHeldBack() {
+        List<Order> kitchen = new ArrayList<>();
+        OrderScheduler s = scheduler(kitchen, Duration.ofSeconds(1));
+        Order draft = new Order("d");
+        draft.addListener(s);
+        s.schedule(draft);
+
+        equal(0, s.advanceTo(Instant.now().plusSeconds(3)), "черновик не отправлен");
+        check(!s.isScheduled(draft.getId()), "черновик снят с колеса");
+        draft.place(PriceList.empty());
+        check(s.isScheduled(draft.getId()), "оформление вернуло заказ на колесо");
+        equal(1, s.advanceTo(Instant.now().plusSeconds(5)), "оформленный отправлен");
+        equal(List.of(draft), kitchen, "кухня получила бывший черновик");
+    }
+
+    private static void postpone() {
+        List<Order> kitchen = new ArrayList<>();
+        OrderScheduler s = scheduler(kitchen, Duration.ofSeconds(1));
+        Instant first = Instant.now().plusSeconds(10);
+        Order o = placedAt(s, first);
+        Instant later = first.plusSeconds(120);
+        o.setTime(later);
+
+        equal(0, s.advanceTo(first.plusSeconds(5)), "по старому времени не отправлен");
+        equal(1, s.advanceTo(later.plusSeconds(1)), "отправлен по новому времени");
+        equal(List.of(o), kitchen, "кухня получила перенесённый заказ");
+    }
+
+    private static void cancel() {
+        List<Order> kitchen = new ArrayList<>();
+        OrderScheduler s = scheduler(kitchen, Duration.ofSeconds(1));
+        Instant due = Instant.now().plusSeconds(10);
+        Order o = placedAt(s, due);
+
+        check(s.cancel(o.getId()), "отмена нашла заказ");
+        check(!s.cancel(o.getId()), "повторная отмена — пусто");
+        equal(0, s.advanceTo(due.plusSeconds(5)), "отменённый не отправлен");
+        check(kitchen.isEmpty(), "кухня пуста");
+    }
+
+    // Тик 1 мс: колесо охватывает 64^4 мс (около 4,6 ч), поэтому заказ через 10 минут лежит
+    // на верхнем уровне и спускается каскадом, а заказ через 5 часов — в overflow
+    private static void overflowCascade() {
+        List<Order> kitchen = new ArrayList<>();
+        OrderScheduler s = scheduler(kitchen, Duration.ofMillis(1));
+        Instant now = Instant.now();
+        Order near = placedAt(s, now.plus(Duration.ofMinutes(10)));
+        Order far = placedAt(s, now.plus(Duration.ofHours(5)));
+
+        equal(0, s.advanceTo(now.plus(Duration.ofMinutes(9))), "до ближнего срока");
+        equal(1, s.advanceTo(now.plus(Duration.ofMinutes(11))), "ближний спустился и отправлен");
+        equal(List.of(near), kitchen, "первым ушёл ближний");
+        equal(0, s.advanceTo(now.plus(Duration.ofHours(4))), "дальний ещё ждёт");
+        equal(1, s.advanceTo(now.plus(Duration.ofHours(5)).plusSeconds(1)), "дальний вышел из overflow");
+        equal(List.of(near, far), kitchen, "порядок отправки");
+    }
+
+    private static void noKitchen() {
+        OrderScheduler s = new OrderScheduler(Clock.systemUTC(), Duration.ofSeconds(1));
+        Order o = new Order("n");
+        o.addListener(s);
+        o.setTime(Instant.now().plusSeconds(60));
+        o.place(PriceList.empty());
+        equal(0, s.pending(), "без кухни заказ не зарегистрирован");
+    }
+}
@@ -0,0 +1,123 @@
+package service;
+
+import model.*;
+
+import java.util.List;
+
+import static util.Checks.*;
+
+public class RepricingTest {
+    public static void main(String[] args) {
+        run("пакет применяется целиком и задевает открытые заказы", RepricingTest::appliesAll);
+        run("пицца меню в заказе: задеты и меню, и заказ; оформление не снимает меню", RepricingTest::sharedMenuPizza);
+        run("одна ошибка в пакете — не меняется ничего", RepricingTest::atomic);
+        run("все ошибки пакета собираются в одно сообщение", RepricingTest::allErrorsReported);
+        run("classicBase проверяется правилом max-price base", RepricingTest::classicPriceRule);
+        run("снижение классической цены не пропускает дорогие неклассические основы", RepricingTest::twentyPercentCap);
+        done();
+    }
+
+    // Своя BasePricing, чтобы тесты не меняли BasePricing.DEFAULT
+    private static App app() {
+        App app = new App(new BasePricing(100));
+        app.seedDefaults();
+        return app;
+    }
+
+    private static Ingredient ingredient(App app, String name) {
+        return app.getAllIngredients().stream().filter(i -> i.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static Base base(App app, String name) {
+        return app.getAllBases().stream().filter(b -> b.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static void appliesAll() {
+        App app = app();
+        Ingredient cheese = ingredient(app, "Сыр");
+        Base thin = base(app, "Тонкая");
+        Order open = app.createOrder("1");
+        Pizza p = app.createPizza("Сырная", thin, Size.SMALL, Mode.BASIC, null);
+        p.addIngredientsBasic(cheese, 1);
+        app.addPizzaToOrder(open, p);
+        double before = open.getTotalPrice();
+
+        RepricingBatch.Result r = app.applyRepricing(new RepricingBatch()
+                .ingredient(cheese.getId(), 40).base(thin.getId(), 130).classicBase(110));
+        near(40, cheese.getPrice(), 1e-9, "сыр");
+        near(130, thin.getPrice(), 1e-9, "тонкая");
+        near(110, app.getPricing().getClassicPrice(), 1e-9, "классическая");
+        near(110, base(app, "Классическая").getPrice(), 1e-9, "классическая основа");
+        near(40, r.prices().priceOf(cheese), 1e-9, "опубликованный прайс");
+        check(r.affectedOrders().contains(open), "открытый заказ задет");
+        check(open.getTotalPrice() > before, "открытый заказ пересчитан");
+    }
+
+    private static void sharedMenuPizza() {
+        App app = app();
+        Ingredient cheese = ingredient(app, "Сыр");
+        Pizza menu = app.getAllPizzas().stream().filter(p -> p.getName().equals("Сырная")).findFirst().orElseThrow();
+        Order o = app.createOrder("1");
+        app.addPizzaToOrder(o, menu);
+
+        RepricingBatch.Result r = app.applyRepricing(new RepricingBatch().ingredient(cheese.getId(), 35));
+        check(r.affectedPizzas().contains(menu), "пицца меню");
+        equal(List.of(o), r.affectedOrders(), "открытый заказ");
+
+        app.placeOrder(o);
+        r = app.applyRepricing(new RepricingBatch().ingredient(cheese.getId(), 40));
+        check(r.affectedPizzas().contains(menu), "пицца меню осталась в индексе");
+        equal(List.of(), r.affectedOrders(), "оформленный заказ не задет");
+    }
+
+    private static void atomic() {
+        App app = app();
+        Ingredient cheese = ingredient(app, "Сыр");
+        Base thin = base(app, "Тонкая");
+        double classic = app.getPricing().getClassicPrice();
+
+        fails(IllegalArgumentException.class, () -> app.applyRepricing(new RepricingBatch()
+                .ingredient(cheese.getId(), 45).base(thin.getId(), 500).classicBase(105)));
+        near(30, cheese.getPrice(), 1e-9, "сыр не изменился");
+        near(115, thin.getPrice(), 1e-9, "тонкая не изменилась");
+        near(classic, app.getPricing().getClassicPrice(), 1e-9, "классическая не изменилась");
+    }
+
+    private static void allErrorsReported() {
+        App app = app();
+        Ingredient cheese = ingredient(app, "Сыр");
+        Base black = base(app, "Черная");
+        try {
+            app.applyRepricing(new RepricingBatch().ingredient(cheese.getId(), -1).base(black.getId(), 0));
+            check(false, "ожидалась IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            check(e.getMessage().contains("Сыр"), "ошибка ингредиента: " + e.getMessage());
+            check(e.getMessage().contains("Черная"), "ошибка основы: " + e.getMessage());
+        }
+    }
+
+    private static void classicPriceRule() {
+        App app = app();
+        app.setRules(BusinessRules.parse("max-price base = 150"));
+        double classic = app.getPricing().getClassicPrice();
+
+        fails(IllegalArgumentException.class, () -> app.applyRepricing(new RepricingBatch().classicBase(200)));
+        near(classic, app.getPricing().getClassicPrice(), 1e-9, "классическая цена не изменилась");
+        near(classic, base(app, "Классическая").getPrice(), 1e-9, "классическая основа не изменилась");
+
+        app.applyRepricing(new RepricingBatch().classicBase(140));
+        near(140, app.getPricing().getClassicPrice(), 1e-9, "цена в пределах правила принята");
+    }
+
+    private static void twentyPercentCap() {
+        App app = app();
+        // Черная стоит 120: при классической 90 предел 108
+        fails(IllegalArgumentException.class, () -> app.applyRepricing(new RepricingBatch().classicBase(90)));
+        near(100, app.getPricing().getClassicPrice(), 1e-9, "классическая не изменилась");
+
+        Base black = base(app, "Черная"), thin = base(app, "Тонкая");
+        app.applyRepricing(new RepricingBatch().classicBase(90).base(black.getId(), 105).base(thin.getId(), 100));
+        equal(List.of(90.0, 105.0, 100.0),
+                List.of(app.getPricing().getClassicPrice(), black.getPrice(), thin.getPrice()), "снижение вместе с основами");
+    }
+}
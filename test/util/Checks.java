@@ -0,0 +1,52 @@
+package util;
+
+import java.util.Objects;
+
+// Мини-набор проверок для тестов без фреймворка. Тест — класс с main, который вызывает run для каждого
+// случая и done в конце; при провале процесс завершается с кодом 1. Запуск после сборки:
+//   java -cp <classes> service.OrderSchedulerTest
+public final class Checks {
+    private static int passed, failed;
+
+    private Checks() { }
+
+    public static void run(String name, Runnable test) {
+        try {
+            test.run();
+            passed++;
+            System.out.println("ok    " + name);
+        } catch (Throwable e) {
+            failed++;
+            System.out.println("FAIL  " + name + ": " + e);
+        }
+    }
+
+    public static void check(boolean condition, String what) {
+        if (!condition) throw new AssertionError(what);
+    }
+
+    public static void equal(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual))
+            throw new AssertionError(what + ": ожидалось " + expected + ", получено " + actual);
+    }
+
+    public static void near(double expected, double actual, double eps, String what) {
+        if (Math.abs(expected - actual) > eps)
+            throw new AssertionError(what + ": ожидалось " + expected + ", получено " + actual);
+    }
+
+    public static <E extends Throwable> E fails(Class<E> type, Runnable body) {
+        try {
+            body.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) return type.cast(e);
+            throw new AssertionError("Ожидалось " + type.getSimpleName() + ", а брошено " + e, e);
+        }
+        throw new AssertionError("Ожидалось " + type.getSimpleName() + ", но исключения не было");
+    }
+
+    public static void done() {
+        System.out.println("пройдено: " + passed + ", провалено: " + failed);
+        if (failed > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,86 @@
+package util;
+
+import java.util.*;
+
+import static util.Checks.*;
+
+public class SpaceSavingTest {
+    public static void main(String[] args) {
+        run("пока ключей не больше ёмкости, счёт точный", SpaceSavingTest::exactBelowCapacity);
+        run("оценка не ниже истины и не выше истины + total / capacity", SpaceSavingTest::errorBounds);
+        run("ключ чаще total / capacity всегда в таблице", SpaceSavingTest::heavyHittersKept);
+        run("top отсортирован и не устаревает после add", SpaceSavingTest::topOrderAndCache);
+        run("withError подбирает ёмкость", SpaceSavingTest::withError);
+        done();
+    }
+
+    private static void exactBelowCapacity() {
+        SpaceSaving<String> s = new SpaceSaving<>(4);
+        for (String k : "a b a c a b".split(" ")) s.add(k);
+        equal(3L, s.estimate("a"), "a");
+        equal(2L, s.estimate("b"), "b");
+        equal(1L, s.estimate("c"), "c");
+        equal(0L, s.estimate("d"), "нет в таблице");
+        for (SpaceSaving.Entry<String> e : s.top(4)) equal(0L, e.error(), "погрешность " + e.key());
+    }
+
+    // Поток с тяжёлым хвостом: проверяются гарантии алгоритма на каждом ключе
+    private static void errorBounds() {
+        int capacity = 50;
+        SpaceSaving<Integer> s = new SpaceSaving<>(capacity);
+        Map<Integer, Long> truth = new HashMap<>();
+        Random rnd = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            int key = (int) Math.floor(Math.pow(rnd.nextDouble(), 3) * 1000);
+            s.add(key);
+            truth.merge(key, 1L, Long::sum);
+        }
+        equal(100_000L, s.total(), "total");
+        near(100_000.0 / capacity, s.maxError(), 1e-9, "maxError");
+        for (SpaceSaving.Entry<Integer> e : s.top(capacity)) {
+            long real = truth.get(e.key());
+            check(e.count() >= real, "оценка " + e.key() + " не ниже истины");
+            check(e.count() - real <= s.maxError(), "завышение " + e.key() + " в пределах maxError");
+            check(e.guaranteed() <= real, "гарантированный минимум " + e.key() + " не выше истины");
+        }
+    }
+
+    private static void heavyHittersKept() {
+        int capacity = 20;
+        SpaceSaving<Integer> s = new SpaceSaving<>(capacity);
+        Map<Integer, Long> truth = new HashMap<>();
+        Random rnd = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            int key = rnd.nextInt(10) == 0 ? rnd.nextInt(3) : 100 + rnd.nextInt(5000);
+            s.add(key);
+            truth.merge(key, 1L, Long::sum);
+        }
+        for (var e : truth.entrySet()) {
+            if (e.getValue() > s.maxError()) check(s.estimate(e.getKey()) > 0, "частый ключ " + e.getKey() + " потерян");
+        }
+    }
+
+    private static void topOrderAndCache() {
+        SpaceSaving<String> s = new SpaceSaving<>(8);
+        for (String k : "a b a c a b d e a f".split(" ")) s.add(k);
+        List<SpaceSaving.Entry<String>> top = s.top(3);
+        equal(3, top.size(), "размер");
+        equal("a", top.get(0).key(), "первый");
+        equal("b", top.get(1).key(), "второй");
+        for (int i = 1; i < top.size(); i++) check(top.get(i - 1).count() >= top.get(i).count(), "по убыванию");
+        equal(List.of(top.get(0)), s.top(1), "меньший n из кеша");
+
+        for (int i = 0; i < 5; i++) s.add("f");
+        equal("f", s.top(1).get(0).key(), "после add кеш сброшен");
+        equal(6, s.top(100).size(), "n больше числа ключей");
+        s.clear();
+        equal(List.of(), s.top(3), "после clear пусто");
+    }
+
+    private static void withError() {
+        equal(100, SpaceSaving.withError(0.01).capacity(), "1%");
+        equal(3, SpaceSaving.withError(0.4).capacity(), "40%");
+        fails(IllegalArgumentException.class, () -> SpaceSaving.withError(0));
+        fails(IllegalArgumentException.class, () -> SpaceSaving.withError(1));
+    }
+}
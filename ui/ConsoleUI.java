@@ -2,7 +2,12 @@ package ui;
 
 import model.*;
 import service.App;
+import service.MemoryReport;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
 import java.time.*;
 import java.util.*;
 
@@ -20,6 +25,12 @@ public class ConsoleUI {
 
     public ConsoleUI(App app) { this.app = app; }
 
+    // Пакетный режим: команды из скрипта, без меню; возвращает число ошибок
+    public int runBatch(Reader script) throws IOException {
+        // System.out сбрасывается на каждой строке; скрипт пишет в свой буфер, ScriptRunner сбрасывает его сам
+        return new ScriptRunner(app).run(script, new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false));
+    }
+
     public void run() {
         while (true) {
             System.out.println("\n=== Главное меню ===");
@@ -29,6 +40,7 @@ public class ConsoleUI {
             System.out.println("4) Пиццы");
             System.out.println("5) Заказы");
             System.out.println("6) Фильтры");
+            System.out.println("7) Память");
             System.out.println("0) Выход");
 
             int c = readInt("Выбор: ");
@@ -41,6 +53,7 @@ public class ConsoleUI {
                     case 4 -> pizzasMenu();
                     case 5 -> ordersMenu();
                     case 6 -> filtersMenu();
+                    case 7 -> System.out.print(MemoryReport.of(app).format());
                     case 0 -> { System.out.println("Пока!"); return; }
                     default -> System.out.println("Нет такого пункта.");
                 }
@@ -187,6 +200,7 @@ public class ConsoleUI {
             System.out.println("2) Показать список (с номерами)");
             System.out.println("3) Изменить цену (по номеру из списка)");
             System.out.println("4) Удалить (по номеру из списка)");
+            System.out.println("5) Задать остаток на складе (по номеру из списка)");
             System.out.println("0) Назад");
 
             int c = readInt("Выбор: ");
@@ -214,6 +228,14 @@ public class ConsoleUI {
                         app.deleteIngredient(i.getId());
                         System.out.println("Удалено.");
                     }
+                    case 5 -> {
+                        ensureIngredientsListed();
+                        int n = readInt("Номер ингредиента: ");
+                        Ingredient i = pickByNumber(lastIngredients, n, "ингредиент");
+                        double portions = readDouble("Остаток (порций): ");
+                        app.setIngredientStock(i.getId(), portions);
+                        System.out.println("Ок.");
+                    }
                     case 0 -> { return; }
                     default -> System.out.println("Нет такого пункта.");
                 }
@@ -235,7 +257,9 @@ public class ConsoleUI {
         System.out.println("--- Ингредиенты ---");
         for (int i = 0; i < lastIngredients.size(); i++) {
             Ingredient ingr = lastIngredients.get(i);
-            System.out.printf("%d) %s | %.2f | %s%n", i + 1, ingr.getName(), ingr.getPrice(), ingr.getId());
+            double left = app.getInventory().available(ingr.getId());
+            System.out.printf("%d) %s | %.2f | склад=%s | %s%n", i + 1, ingr.getName(), ingr.getPrice(),
+                    Double.isInfinite(left) ? "-" : String.format("%.2f", left), ingr.getId());
         }
     }
 
@@ -350,7 +374,7 @@ public class ConsoleUI {
                         Ingredient ingr = pickByNumber(lastIngredients, ingrN, "ингредиент");
 
                         int mult = readInt("Порция (1 или 2): ");
-                        side.addIngredient(ingr, mult);
+                        app.addIngredientToSide(side, ingr, mult);
 
                         System.out.println("Ок. Цена борта: " + String.format("%.2f", side.getPrice()));
                     }
@@ -589,7 +613,8 @@ public class ConsoleUI {
             System.out.println("10) Кастомная пицца по кускам (в заказ)");
             System.out.println("11) Отложить текущий заказ на дату/время");
             System.out.println("12) Удалить пиццу из текущего заказа");
-            System.out.println("13) Удалить пиццу из текущего заказа");
+            System.out.println("13) Изменить размер пиццы в текущем заказе");
+            System.out.println("14) Оформить текущий заказ (зафиксировать цены)");
             System.out.println("0) Назад");
 
             int c = readInt("Выбор: ");
@@ -614,13 +639,13 @@ public class ConsoleUI {
                         Pizza p = pickByNumber(lastPizzas, pN, "пицца");
 
                         Pizza copy = app.copyPizzaForOrder(p);
-                        o.addPizza(copy);
+                        app.addPizzaToOrder(o, copy);
                         System.out.println("Пицца добавлена в заказ.");
                     }
                     case 5 -> {
                         Order o = ensureCurrentOrder();
                         String guestName = readString("Имя гостя: ");
-                        o.createGuest(new Person(guestName));
+                        o.createGuest(app.customer(guestName));
                         System.out.println("Гость добавлен.");
                     }
                     case 6 -> {
@@ -709,7 +734,7 @@ public class ConsoleUI {
                             }
                         }
 
-                        o.addCustomPizza(p);
+                        app.addCustomPizzaToOrder(o, p);
                         System.out.println("Кастомная пицца добавлена в заказ. Цена: " + String.format("%.2f", p.getPrice()));
                     }
                     case 9 -> {
@@ -728,7 +753,7 @@ public class ConsoleUI {
                         Pizza p = app.createPizzaForOrderOnly(name, a.getBase(), a.getSize(), Mode.HALFS, null);
                         p.applyHalfsFrom(a, b);
 
-                        o.addCustomPizza(p);
+                        app.addCustomPizzaToOrder(o, p);
                         System.out.println("Готово. Добавлено в заказ:\n" + p.describe());
                     }
                     case 10 -> {
@@ -750,7 +775,7 @@ public class ConsoleUI {
                             System.out.println("Добавлено.");
                         }
 
-                        o.addCustomPizza(p);
+                        app.addCustomPizzaToOrder(o, p);
                         System.out.println("Готово. Добавлено в заказ:\n" + p.describe());
                     }
                     case 11 -> {
@@ -777,7 +802,7 @@ public class ConsoleUI {
                         int n = readInt("Номер пиццы: ");
                         Pizza p = pickByNumber(all, n, "пицца");
 
-                        o.removeAnyPizza(p);
+                        app.removePizzaFromOrder(o, p);
                         System.out.println("Пицца удалена из заказа.");
                     }
                     case 13 -> {
@@ -798,10 +823,16 @@ public class ConsoleUI {
                         Pizza p = pickByNumber(all, n, "пицца");
 
                         Size newSize = readEnum("Новый размер (SMALL/MEDIUM/LARGE): ", Size.class);
-                        p.setSize(newSize);
+                        app.resizeOrderPizza(o, p, newSize);
 
                         System.out.println("Ок. Новый размер: " + newSize.getName());
                     }
+                    case 14 -> {
+                        Order o = ensureCurrentOrder();
+                        app.placeOrder(o);
+                        System.out.println("Заказ оформлен по прайс-листу v" + o.getPriceList().getVersion()
+                                + ". Итого: " + String.format("%.2f", o.getTotalPrice()));
+                    }
                     case 0 -> { return; }
                     default -> System.out.println("Нет такого пункта.");
                 }
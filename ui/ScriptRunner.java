@@ -0,0 +1,343 @@
+package ui;
+
+import model.*;
+import service.App;
+import service.MemoryReport;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+
+// Пакетный режим: те же операции, что в меню ConsoleUI, но командами из скрипта.
+// Сущности указываются по имени, пиццы заказа — по номеру. Вывод команд идёт в sink и сбрасывается
+// только после ошибки и в конце, поэтому sink стоит давать буферизованный. Тайминги печатаются в конце.
+public class ScriptRunner {
+    private record Timing(long count, long totalNanos, long maxNanos) {
+        Timing plus(long nanos) { return new Timing(count + 1, totalNanos + nanos, Math.max(maxNanos, nanos)); }
+    }
+
+    private final App app;
+    private PrintStream out;
+    private final Map<String, Timing> timings = new TreeMap<>();
+    private Order currentOrder = null;
+    private int errors = 0;
+
+    public ScriptRunner(App app) { this.app = app; }
+
+    public int run(Reader script, PrintStream sink) throws IOException {
+        out = sink;
+        BufferedReader in = new BufferedReader(script);
+        long started = System.nanoTime();
+        int lineNo = 0, commands = 0;
+
+        String line;
+        try {
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                long t0 = System.nanoTime();
+                String cmd = null;
+                try {
+                    List<String> t = tokenize(line);
+                    if (t.isEmpty() || t.get(0).startsWith("#")) continue;
+                    cmd = t.get(0);
+                    commands++;
+                    execute(cmd, t.subList(1, t.size()));
+                } catch (Exception e) {
+                    errors++;
+                    out.println("строка " + lineNo + ": Ошибка: " + e.getMessage());
+                    out.flush();
+                }
+                long took = System.nanoTime() - t0;
+                if (cmd != null) timings.merge(cmd, new Timing(1, took, took), (x, y) -> x.plus(took));
+            }
+
+            printReport(commands, System.nanoTime() - started);
+        } finally {
+            out.flush();
+        }
+        return errors;
+    }
+
+    private void execute(String cmd, List<String> a) {
+        switch (cmd) {
+            // ---------- Ингредиенты ----------
+            case "ingredient.create" -> {
+                need(a, 2);
+                Ingredient i = app.createIngredient(a.get(0), num(a.get(1)));
+                println("Создан: " + i.getName() + " id=" + i.getId());
+            }
+            case "ingredient.price" -> { need(a, 2); app.updateIngredientPrice(ingredient(a.get(0)).getId(), num(a.get(1))); }
+            case "ingredient.stock" -> { need(a, 2); app.setIngredientStock(ingredient(a.get(0)).getId(), num(a.get(1))); }
+            case "ingredient.delete" -> { need(a, 1); app.deleteIngredient(ingredient(a.get(0)).getId()); }
+            case "ingredient.list" -> {
+                for (Ingredient i : sorted(app.getAllIngredients())) {
+                    double left = app.getInventory().available(i.getId());
+                    println(String.format("%s | %.2f | склад=%s", i.getName(), i.getPrice(),
+                            Double.isInfinite(left) ? "-" : String.format("%.2f", left)));
+                }
+            }
+
+            // ---------- Основы ----------
+            case "base.classic" -> {
+                Base b = app.createClassicBase();
+                println("Создана: " + b.getName() + " цена=" + b.getPrice());
+            }
+            case "base.create" -> {
+                need(a, 2);
+                Base b = app.createNotClassicBase(a.get(0), num(a.get(1)));
+                println("Создана: " + b.getName() + " цена=" + b.getPrice());
+            }
+            case "base.price" -> { need(a, 2); app.updateBasePrice(base(a.get(0)).getId(), num(a.get(1))); }
+            case "base.delete" -> { need(a, 1); app.deleteBase(base(a.get(0)).getId()); }
+            case "base.list" -> { for (Base b : sorted(app.getAllBases())) println(String.format("%s | %.2f", b.getName(), b.getPrice())); }
+
+            // ---------- Бортики ----------
+            case "side.create" -> { need(a, 1); app.createSide(a.get(0)); }
+            case "side.add" -> { need(a, 3); app.addIngredientToSide(side(a.get(0)), ingredient(a.get(1)), integer(a.get(2))); }
+            case "side.delete" -> { need(a, 1); app.deleteSide(side(a.get(0)).getId()); }
+            case "side.list" -> { for (Side sd : sorted(app.getAllSides())) println(String.format("%s | цена=%.2f", sd.getName(), sd.getPrice())); }
+
+            // ---------- Пиццы ----------
+            case "pizza.create" -> { need(a, 3); app.createPizza(a.get(0), base(a.get(1)), size(a.get(2)), Mode.BASIC, null); }
+            case "pizza.ingredient" -> { need(a, 3); pizza(a.get(0)).addIngredientsBasic(ingredient(a.get(1)), integer(a.get(2))); }
+            case "pizza.slice-ingredient" -> {
+                need(a, 4);
+                pizza(a.get(0)).addIngredientToSlice(integer(a.get(1)), ingredient(a.get(2)), integer(a.get(3)));
+            }
+            case "pizza.parts" -> {
+                need(a, 5);
+                pizza(a.get(0)).addIngredientParts(ingredient(a.get(1)), integer(a.get(2)), integer(a.get(3)), integer(a.get(4)));
+            }
+            case "pizza.side" -> { need(a, 2); pizza(a.get(0)).addSideBasic(side(a.get(1))); }
+            case "pizza.side-half" -> { need(a, 3); pizza(a.get(0)).addSideHalfs(side(a.get(1)), a.get(2).toUpperCase()); }
+            case "pizza.side-parts" -> {
+                need(a, 4);
+                pizza(a.get(0)).addSideParts(side(a.get(1)), integer(a.get(2)), integer(a.get(3)));
+            }
+            case "pizza.side-slice" -> { need(a, 3); pizza(a.get(0)).setSideToSlice(integer(a.get(1)), side(a.get(2))); }
+            case "pizza.remove-ingredient" -> { need(a, 2); pizza(a.get(0)).removeIngredientEverywhere(ingredient(a.get(1)).getId()); }
+            case "pizza.clear" -> { need(a, 1); pizza(a.get(0)).clearIngredientsEverywhere(); }
+            case "pizza.size" -> { need(a, 2); pizza(a.get(0)).setSize(size(a.get(1))); }
+            case "pizza.halfs" -> {
+                need(a, 3);
+                Pizza x = pizza(a.get(1)), y = pizza(a.get(2));
+                Pizza combo = app.createPizza(a.get(0), x.getBase(), x.getSize(), Mode.HALFS, null);
+                combo.applyHalfsFrom(x, y);
+            }
+            case "pizza.show" -> { need(a, 1); println(pizza(a.get(0)).describe()); }
+            case "pizza.list" -> printPizzas(app.getAllPizzas().stream().sorted(Comparator.comparingDouble(Pizza::getPrice)).toList());
+
+            // ---------- Заказы ----------
+            case "order.create" -> { need(a, 1); currentOrder = app.createOrder(a.get(0)); }
+            case "order.select" -> { need(a, 1); currentOrder = order(a.get(0)); }
+            case "order.add" -> { need(a, 1); app.addPizzaToOrder(current(), app.copyPizzaForOrder(pizza(a.get(0)))); }
+            case "order.halfs" -> {
+                need(a, 3);
+                Pizza x = pizza(a.get(1)), y = pizza(a.get(2));
+                Pizza p = app.createPizzaForOrderOnly(a.get(0), x.getBase(), x.getSize(), Mode.HALFS, null);
+                p.applyHalfsFrom(x, y);
+                app.addCustomPizzaToOrder(current(), p);
+            }
+            case "order.custom" -> {
+                // name base size [ингредиент порция]...
+                need(a, 3);
+                if ((a.size() - 3) % 2 != 0) throw new IllegalArgumentException("Ингредиенты задаются парами: название и порция");
+                Pizza p = app.createPizzaForOrderOnly(a.get(0), base(a.get(1)), size(a.get(2)), Mode.BASIC, null);
+                for (int k = 3; k < a.size(); k += 2) p.addIngredientsBasic(ingredient(a.get(k)), integer(a.get(k + 1)));
+                app.addCustomPizzaToOrder(current(), p);
+                println("Кастомная пицца добавлена в заказ. Цена: " + String.format("%.2f", p.getPrice()));
+            }
+            case "order.parts" -> {
+                // name base size [ингредиент порция a b]...
+                need(a, 3);
+                if ((a.size() - 3) % 4 != 0) throw new IllegalArgumentException("Ингредиенты задаются четвёрками: название, порция, a, b");
+                Pizza p = app.createPizzaForOrderOnly(a.get(0), base(a.get(1)), size(a.get(2)), Mode.PARTS, null);
+                for (int k = 3; k < a.size(); k += 4) {
+                    p.addIngredientParts(ingredient(a.get(k)), integer(a.get(k + 1)), integer(a.get(k + 2)), integer(a.get(k + 3)));
+                }
+                app.addCustomPizzaToOrder(current(), p);
+                println("Готово. Добавлено в заказ:\n" + p.describe());
+            }
+            case "order.side" -> {
+                // номер бортик — на всю пиццу; + A/B — на половину; + k — на кусок; + a b — на диапазон
+                need(a, 2);
+                Pizza p = pickByNumber(orderPizzas(current()), integer(a.get(0)), "пицца");
+                Side sd = side(a.get(1));
+                switch (a.size()) {
+                    case 2 -> p.addSideBasic(sd);
+                    case 3 -> {
+                        String where = a.get(2).toUpperCase();
+                        if (where.equals("A") || where.equals("B")) p.addSideHalfs(sd, where);
+                        else p.setSideToSlice(integer(where), sd);
+                    }
+                    default -> p.addSideParts(sd, integer(a.get(2)), integer(a.get(3)));
+                }
+            }
+            case "order.resize" -> {
+                need(a, 2);
+                Order o = current();
+                app.resizeOrderPizza(o, pickByNumber(orderPizzas(o), integer(a.get(0)), "пицца"), size(a.get(1)));
+            }
+            case "order.guest" -> { need(a, 1); current().createGuest(app.customer(a.get(0))); }
+            case "order.assign" -> {
+                need(a, 2);
+                Order o = current();
+                o.addGuestToPizza(pickByNumber(orderPizzas(o), integer(a.get(0)), "пицца"), guest(o, a.get(1)));
+            }
+            case "order.remove" -> {
+                need(a, 1);
+                Order o = current();
+                app.removePizzaFromOrder(o, pickByNumber(orderPizzas(o), integer(a.get(0)), "пицца"));
+            }
+            case "order.comment" -> current().setComment(String.join(" ", a));
+            case "order.postpone" -> {
+                need(a, 2);
+                current().postponeTo(LocalDate.parse(a.get(0)), LocalTime.parse(a.get(1)), ZoneId.systemDefault());
+            }
+            case "order.place" -> app.placeOrder(current());
+            case "order.show" -> println(current().describe());
+            case "order.list" -> printOrders(app.getAllOrders().stream().sorted(Comparator.comparing(Order::getTime)).toList());
+
+            // ---------- Фильтры ----------
+            case "filter.pizza-ingredient" -> { need(a, 1); printPizzas(app.pizzasWithIngredient(ingredient(a.get(0)))); }
+            case "filter.pizza-size" -> { need(a, 1); printPizzas(app.pizzasBySize(size(a.get(0)))); }
+            case "filter.pizza-base" -> { need(a, 1); printPizzas(app.pizzasByBase(base(a.get(0)))); }
+            case "filter.pizza-mode" -> { need(a, 1); printPizzas(app.pizzasByMode(Mode.valueOf(a.get(0).toUpperCase()))); }
+            case "filter.order-total" -> { need(a, 1); printOrders(app.ordersMoreThan(num(a.get(0)))); }
+            case "filter.order-day" -> { need(a, 1); printOrders(app.ordersAtDay(LocalDate.parse(a.get(0)), ZoneId.systemDefault())); }
+            case "filter.order-pizza" -> { need(a, 1); printOrders(app.ordersWithPizza(pizza(a.get(0)))); }
+            case "filter.order-ingredient" -> { need(a, 1); printOrders(app.ordersWithIngredient(ingredient(a.get(0)))); }
+            case "filter.order-guests" -> { need(a, 1); printOrders(app.ordersWithMinGuests(integer(a.get(0)))); }
+
+            // ---------- Память ----------
+            case "memory" -> out.print(MemoryReport.of(app).format());
+
+            // ---------- Гости ----------
+            case "customer.show" -> {
+                need(a, 1);
+                Person c = app.findCustomer(a.get(0));
+                if (c == null) throw new IllegalArgumentException("Не найдено (гость): " + a.get(0));
+                StringBuilder sb = new StringBuilder("Гость ").append(c.getName()).append("\nЗаказы:");
+                for (Order o : app.ordersOf(c)) sb.append(' ').append(o.getName());
+                sb.append("\nЛюбимые пиццы:");
+                for (var f : app.favouritePizzas(c, 3)) sb.append("\n  ").append(f.name()).append(" x").append(f.count());
+                println(sb.toString());
+            }
+
+            // ---------- Популярное ----------
+            case "stats.top" -> {
+                int n = a.isEmpty() ? 5 : integer(a.get(0));
+                StringBuilder sb = new StringBuilder("Популярные пиццы:");
+                for (var e : app.topPizzas(n)) sb.append("\n  ").append(e.key()).append(" — ").append(e.count());
+                sb.append("\nПопулярные ингредиенты (порций):");
+                for (var e : app.topIngredients(n)) sb.append("\n  ").append(e.key().getName()).append(" — ").append(e.count());
+                sb.append("\nПопулярные бортики:");
+                for (var e : app.topSides(n)) sb.append("\n  ").append(e.key().getName()).append(" — ").append(e.count());
+                println(sb.toString());
+            }
+            default -> throw new IllegalArgumentException("Неизвестная команда: " + cmd);
+        }
+    }
+
+    // ---------- Поиск по имени ----------
+
+    private static <T extends Entity> T byName(List<T> list, String name, String what) {
+        for (T x : list) if (x.getName().equals(name)) return x;
+        throw new IllegalArgumentException("Не найдено (" + what + "): " + name);
+    }
+
+    private Ingredient ingredient(String name) { return byName(app.findIngredients(name), name, "ингредиент"); }
+    private Base base(String name) { return byName(app.findBases(name), name, "основа"); }
+    private Side side(String name) { return byName(app.findSides(name), name, "борт"); }
+    private Pizza pizza(String name) { return byName(app.findPizzas(name), name, "пицца"); }
+
+    private Order order(String number) {
+        Order o = app.findOrder(number);
+        if (o == null) throw new IllegalArgumentException("Не найдено (заказ): " + number);
+        return o;
+    }
+    private Person guest(Order o, String name) {
+        Person c = app.findCustomer(name);
+        if (c != null && o.getGuests().contains(c)) return c;
+        return byName(o.getGuests(), name, "гость");
+    }
+
+    private Order current() {
+        if (currentOrder == null) throw new IllegalArgumentException("Нет текущего заказа. Создайте или выберите заказ.");
+        return currentOrder;
+    }
+
+    private static List<Pizza> orderPizzas(Order o) {
+        List<Pizza> all = new ArrayList<>(o.getPizzasList());
+        all.addAll(o.getCustomPizzas());
+        return all;
+    }
+
+    // ---------- Вывод ----------
+
+    private void printPizzas(List<Pizza> list) {
+        if (list.isEmpty()) println("Ничего не найдено.");
+        for (Pizza p : list) {
+            println(String.format("%s | %.2f | %s | %s", p.getName(), p.getPrice(), p.getBase().getName(), p.getMode().getName()));
+        }
+    }
+
+    private void printOrders(List<Order> list) {
+        if (list.isEmpty()) println("Ничего не найдено.");
+        for (Order o : list) println(String.format("№%s | %.2f | %s", o.getName(), o.getTotalPrice(), o.getTime()));
+    }
+
+    private static <T extends Entity> List<T> sorted(List<T> list) {
+        return list.stream().sorted(Comparator.comparing(Entity::getName)).toList();
+    }
+
+    // ---------- Utils ----------
+
+    private void println(String s) { out.println(s); }
+
+    private static void need(List<String> args, int n) {
+        if (args.size() < n) throw new IllegalArgumentException("Ожидается аргументов: " + n + ", получено: " + args.size());
+    }
+
+    private static double num(String s) { return Double.parseDouble(s.replace(',', '.')); }
+    private static int integer(String s) { return Integer.parseInt(s); }
+    private static Size size(String s) { return Size.valueOf(s.toUpperCase()); }
+
+    private static <T> T pickByNumber(List<T> list, int number1Based, String what) {
+        if (number1Based < 1 || number1Based > list.size())
+            throw new IllegalArgumentException("Неверный номер (" + what + ").");
+        return list.get(number1Based - 1);
+    }
+
+    // Слова через пробел; имена с пробелами — в двойных кавычках
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false, inToken = false;
+        for (char c : line.trim().toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) tokens.add(cur.toString());
+                cur.setLength(0);
+                inToken = false;
+            } else {
+                cur.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Незакрытая кавычка");
+        if (inToken) tokens.add(cur.toString());
+        return tokens;
+    }
+
+    private void printReport(int commands, long totalNanos) {
+        out.printf("%n--- Выполнено команд: %d, ошибок: %d, за %.1f мс ---%n", commands, errors, totalNanos / 1e6);
+        out.printf("%-24s %8s %12s %12s%n", "команда", "кол-во", "среднее мкс", "max мкс");
+        timings.forEach((cmd, t) -> out.printf("%-24s %8d %12.1f %12.1f%n",
+                cmd, t.count(), t.totalNanos() / 1e3 / t.count(), t.maxNanos() / 1e3));
+    }
+}
@@ -0,0 +1,153 @@
+package util;
+
+import java.util.*;
+
+// Space-Saving: приближённые частоты самых частых ключей потока в ограниченной памяти.
+// Хранится не больше capacity счётчиков; новый ключ при заполнении вытесняет минимальный
+// и наследует его счёт как погрешность. Оценка завышена не больше чем на total / capacity,
+// любой ключ с частотой выше total / capacity гарантированно есть в таблице.
+// Счётчики лежат в min-куче с индексом в HashMap: добавление — O(log capacity).
+// top(n) отбирает n лучших кучей размера n за O(capacity log n); результат кешируется до следующего add.
+// Не потокобезопасна: синхронизация — на стороне владельца.
+public final class SpaceSaving<K> {
+    // count — оценка сверху, count - error — гарантированный минимум
+    public record Entry<K>(K key, long count, long error) {
+        public long guaranteed() { return count - error; }
+    }
+
+    private static final class Counter<K> {
+        final K key;
+        long count, error;
+        int pos;
+
+        Counter(K key) { this.key = key; }
+    }
+
+    private final int capacity;
+    private final Map<K, Counter<K>> byKey;
+    private final Counter<K>[] heap;
+    private int size;
+    private long total;
+    // Последний ответ top: для него и для любого меньшего n, пока таблица не менялась
+    private List<Entry<K>> topCache = List.of();
+    private boolean topComplete = true;
+
+    @SuppressWarnings("unchecked")
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Ёмкость должна быть >= 1");
+        this.capacity = capacity;
+        this.byKey = new HashMap<>(capacity * 2);
+        this.heap = (Counter<K>[]) new Counter<?>[capacity];
+    }
+
+    // Ёмкость под допустимую погрешность: оценка ошибается не больше чем на epsilon * total
+    public static <K> SpaceSaving<K> withError(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) throw new IllegalArgumentException("Погрешность должна быть в (0, 1)");
+        return new SpaceSaving<>((int) Math.ceil(1 / epsilon));
+    }
+
+    public int capacity() { return capacity; }
+    public int size() { return size; }
+    public long total() { return total; }
+    public double maxError() { return (double) total / capacity; }
+
+    public void add(K key) { add(key, 1); }
+
+    public void add(K key, long weight) {
+        if (key == null) throw new IllegalArgumentException("key null");
+        if (weight < 1) throw new IllegalArgumentException("Вес должен быть >= 1");
+        total += weight;
+        topCache = null;
+        Counter<K> c = byKey.get(key);
+        if (c != null) {
+            c.count += weight;
+            siftDown(c.pos);
+            return;
+        }
+        c = new Counter<>(key);
+        byKey.put(key, c);
+        if (size < capacity) {
+            // Пока таблица не заполнена, новый лист может оказаться меньше родителя
+            c.count = weight;
+            heap[size] = c;
+            siftUp(size++);
+            return;
+        }
+        // Вытесняем минимальный: новый ключ мог встречаться раньше не чаще него
+        Counter<K> min = heap[0];
+        byKey.remove(min.key);
+        c.error = min.count;
+        c.count = min.count + weight;
+        heap[0] = c;
+        siftDown(0);
+    }
+
+    // Оценка частоты ключа; 0 — ключ не в таблице (его частота не больше maxError)
+    public long estimate(K key) {
+        Counter<K> c = byKey.get(key);
+        return c == null ? 0 : c.count;
+    }
+
+    public List<Entry<K>> top(int n) {
+        if (n < 1) throw new IllegalArgumentException("n должно быть >= 1");
+        List<Entry<K>> cached = topCache;
+        if (cached != null && (topComplete || cached.size() >= n))
+            return cached.size() > n ? cached.subList(0, n) : cached;
+
+        // Min-куча из n лучших: счётчик заходит, только если больше худшего из отобранных
+        PriorityQueue<Counter<K>> best = new PriorityQueue<>(Math.min(n, Math.max(size, 1)), Comparator.comparingLong(c -> c.count));
+        for (int i = 0; i < size; i++) {
+            Counter<K> c = heap[i];
+            if (best.size() < n) best.add(c);
+            else if (c.count > best.peek().count) {
+                best.poll();
+                best.add(c);
+            }
+        }
+        List<Entry<K>> result = new ArrayList<>(best.size());
+        for (Counter<K> c : best) result.add(new Entry<>(c.key, c.count, c.error));
+        result.sort(Comparator.comparingLong(Entry<K>::count).reversed());
+        topCache = List.copyOf(result);
+        topComplete = result.size() == size;
+        return topCache;
+    }
+
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        byKey.clear();
+        size = 0;
+        total = 0;
+        topCache = List.of();
+        topComplete = true;
+    }
+
+    private void siftUp(int i) {
+        Counter<K> c = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent].count <= c.count) break;
+            heap[i] = heap[parent];
+            heap[i].pos = i;
+            i = parent;
+        }
+        heap[i] = c;
+        c.pos = i;
+    }
+
+    // Счёт существующего счётчика только растёт, поэтому элемент может уйти лишь вниз
+    private void siftDown(int i) {
+        Counter<K> c = heap[i];
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) break;
+            int r = l + 1;
+            int child = r < size && heap[r].count < heap[l].count ? r : l;
+            if (heap[child].count >= c.count) break;
+            heap[i] = heap[child];
+            heap[i].pos = i;
+            i = child;
+        }
+        heap[i] = c;
+        c.pos = i;
+    }
+}
@@ -0,0 +1,168 @@
+package util;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Открытая адресация с линейным пробированием: UUID -> double без упаковки и без узлов на запись.
+// Не потокобезопасна.
+public final class UuidDoubleMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @FunctionalInterface
+    public interface Consumer { void accept(UUID key, double value); }
+
+    private long[] hi, lo;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+
+    public UuidDoubleMap() { this(UuidHash.MIN_CAPACITY); }
+
+    public UuidDoubleMap(int expected) { init(UuidHash.capacityFor(expected)); }
+
+    private void init(int capacity) {
+        hi = new long[capacity];
+        lo = new long[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean containsKey(UUID key) { return find(key) >= 0; }
+
+    public double get(UUID key, double defaultValue) {
+        int i = find(key);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    public void put(UUID key, double value) { values[insert(key)] = value; }
+
+    // Прибавляет delta к значению (отсутствующий ключ считается нулём), возвращает новое значение
+    public double add(UUID key, double delta) {
+        int i = insert(key);
+        return values[i] += delta;
+    }
+
+    public boolean remove(UUID key) {
+        int i = find(key);
+        if (i < 0) return false;
+        deleteAt(i);
+        return true;
+    }
+
+    public void forEach(Consumer action) {
+        for (int i = 0; i < used.length; i++) if (used[i]) action.accept(new UUID(hi[i], lo[i]), values[i]);
+    }
+
+    // Неизменяемое представление для кода, которому нужен Map; значения упаковываются только при чтении
+    public Map<UUID, Double> asMap() {
+        return new AbstractMap<>() {
+            @Override public int size() { return size; }
+            @Override public boolean containsKey(Object key) { return key instanceof UUID u && find(u) >= 0; }
+
+            @Override
+            public Double get(Object key) {
+                if (!(key instanceof UUID u)) return null;
+                int i = find(u);
+                return i >= 0 ? values[i] : null;
+            }
+
+            @Override
+            public Set<Entry<UUID, Double>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override public int size() { return size; }
+
+                    @Override
+                    public Iterator<Entry<UUID, Double>> iterator() {
+                        return new Iterator<>() {
+                            int next = advance(0);
+
+                            private int advance(int from) {
+                                while (from < used.length && !used[from]) from++;
+                                return from;
+                            }
+
+                            @Override public boolean hasNext() { return next < used.length; }
+
+                            @Override
+                            public Entry<UUID, Double> next() {
+                                if (!hasNext()) throw new NoSuchElementException();
+                                int i = next;
+                                next = advance(i + 1);
+                                return Map.entry(new UUID(hi[i], lo[i]), values[i]);
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    // --------- Внутреннее ---------
+
+    private int find(UUID key) {
+        long h = key.getMostSignificantBits(), l = key.getLeastSignificantBits();
+        int mask = used.length - 1;
+        for (int i = UuidHash.slot(h, l, mask); used[i]; i = (i + 1) & mask) {
+            if (hi[i] == h && lo[i] == l) return i;
+        }
+        return -1;
+    }
+
+    private int insert(UUID key) {
+        UuidHash.key(key);
+        if (size + 1 > used.length * UuidHash.LOAD_FACTOR) rehash(used.length * 2);
+        long h = key.getMostSignificantBits(), l = key.getLeastSignificantBits();
+        int mask = used.length - 1;
+        int i = UuidHash.slot(h, l, mask);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (hi[i] == h && lo[i] == l) return i;
+        }
+        used[i] = true;
+        hi[i] = h;
+        lo[i] = l;
+        values[i] = 0;
+        size++;
+        return i;
+    }
+
+    // Удаление со сдвигом назад: цепочки пробирования остаются непрерывными без надгробий
+    private void deleteAt(int i) {
+        int mask = used.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j]) break;
+            int home = UuidHash.slot(hi[j], lo[j], mask);
+            if ((j > i && (home <= i || home > j)) || (j < i && home <= i && home > j)) {
+                hi[i] = hi[j];
+                lo[i] = lo[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        used[i] = false;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldHi = hi, oldLo = lo;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        init(capacity);
+        int mask = capacity - 1;
+        for (int k = 0; k < oldUsed.length; k++) {
+            if (!oldUsed[k]) continue;
+            int i = UuidHash.slot(oldHi[k], oldLo[k], mask);
+            while (used[i]) i = (i + 1) & mask;
+            used[i] = true;
+            hi[i] = oldHi[k];
+            lo[i] = oldLo[k];
+            values[i] = oldValues[k];
+            size++;
+        }
+    }
+}
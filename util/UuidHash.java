@@ -0,0 +1,30 @@
+package util;
+
+import java.util.UUID;
+
+// Общие части открытых хеш-таблиц с ключом UUID: ключ хранится как две половины long
+final class UuidHash {
+    static final int MIN_CAPACITY = 8;
+    static final float LOAD_FACTOR = 0.6f;
+
+    private UuidHash() { }
+
+    static int slot(long hi, long lo, int mask) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    static int capacityFor(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap * LOAD_FACTOR < expected) cap <<= 1;
+        return cap;
+    }
+
+    static UUID key(Object o) {
+        if (o == null) throw new IllegalArgumentException("key null");
+        return (UUID) o;
+    }
+}
@@ -0,0 +1,131 @@
+package util;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// Открытая адресация с линейным пробированием: UUID -> V, ключи в двух массивах long,
+// без объекта-узла на запись. Не потокобезопасна: синхронизация — на стороне владельца.
+public final class UuidMap<V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long[] hi, lo;
+    private Object[] values;
+    private int size;
+
+    public UuidMap() { this(UuidHash.MIN_CAPACITY); }
+
+    public UuidMap(int expected) { init(UuidHash.capacityFor(expected)); }
+
+    private void init(int capacity) {
+        hi = new long[capacity];
+        lo = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean containsKey(UUID key) { return find(key) >= 0; }
+
+    @SuppressWarnings("unchecked")
+    public V get(UUID key) {
+        int i = find(key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    // Возвращает прежнее значение или null
+    @SuppressWarnings("unchecked")
+    public V put(UUID key, V value) {
+        if (value == null) throw new IllegalArgumentException("value null");
+        UuidHash.key(key);
+        if (size + 1 > values.length * UuidHash.LOAD_FACTOR) rehash(values.length * 2);
+        long h = key.getMostSignificantBits(), l = key.getLeastSignificantBits();
+        int mask = values.length - 1;
+        int i = UuidHash.slot(h, l, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (hi[i] == h && lo[i] == l) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        hi[i] = h;
+        lo[i] = l;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(UUID key) {
+        int i = find(key);
+        if (i < 0) return null;
+        V old = (V) values[i];
+        deleteAt(i);
+        return old;
+    }
+
+    public void clear() { init(UuidHash.MIN_CAPACITY); }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<UUID, ? super V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) action.accept(new UUID(hi[i], lo[i]), (V) values[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (Object v : values) if (v != null) result.add((V) v);
+        return result;
+    }
+
+    // --------- Внутреннее ---------
+
+    private int find(UUID key) {
+        long h = key.getMostSignificantBits(), l = key.getLeastSignificantBits();
+        int mask = values.length - 1;
+        for (int i = UuidHash.slot(h, l, mask); values[i] != null; i = (i + 1) & mask) {
+            if (hi[i] == h && lo[i] == l) return i;
+        }
+        return -1;
+    }
+
+    // Удаление со сдвигом назад: цепочки пробирования остаются непрерывными без надгробий
+    private void deleteAt(int i) {
+        int mask = values.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) break;
+            int home = UuidHash.slot(hi[j], lo[j], mask);
+            if ((j > i && (home <= i || home > j)) || (j < i && home <= i && home > j)) {
+                hi[i] = hi[j];
+                lo[i] = lo[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldHi = hi, oldLo = lo;
+        Object[] oldValues = values;
+        init(capacity);
+        int mask = capacity - 1;
+        for (int k = 0; k < oldValues.length; k++) {
+            if (oldValues[k] == null) continue;
+            int i = UuidHash.slot(oldHi[k], oldLo[k], mask);
+            while (values[i] != null) i = (i + 1) & mask;
+            hi[i] = oldHi[k];
+            lo[i] = oldLo[k];
+            values[i] = oldValues[k];
+            size++;
+        }
+    }
+}